@@ -0,0 +1,62 @@
+package com.mariuszilinskas.vsp.users.profile;
+
+import com.mariuszilinskas.vsp.users.profile.service.InMemoryS3Service;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+/**
+ * Starts the application for benchmarks: the CI profile with its embedded H2 database,
+ * an in-memory S3 stand-in, no web server and no RabbitMQ listeners.
+ *
+ * @author Marius Zilinskas
+ */
+public final class BenchmarkContext {
+
+    private BenchmarkContext() {
+        // Private constructor to prevent instantiation
+    }
+
+    public static ConfigurableApplicationContext start() {
+        return new SpringApplicationBuilder(ProfileServiceApplication.class, InMemoryS3Service.class)
+                .profiles("ci")
+                .web(WebApplicationType.NONE)
+                .logStartupInfo(false)
+                .properties(
+                        "spring.rabbitmq.listener.simple.auto-startup=false",
+                        "rabbitmq.cache-invalidation.flush-interval=1h",
+                        "logging.level.root=WARN",
+                        "logging.level.com.mariuszilinskas=WARN"
+                )
+                .run();
+    }
+
+    /**
+     * Creates a PNG image of the given size, filled with a colour derived from {@code seed}.
+     */
+    public static byte[] png(int size, int seed) {
+        BufferedImage image = new BufferedImage(size, size, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        try {
+            graphics.setColor(new Color((seed * 0x9E3779B1) & 0xFFFFFF));
+            graphics.fillRect(0, 0, size, size);
+        } finally {
+            graphics.dispose();
+        }
+        try {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            ImageIO.write(image, "png", output);
+            return output.toByteArray();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
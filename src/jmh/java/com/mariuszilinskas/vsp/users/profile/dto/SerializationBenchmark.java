@@ -0,0 +1,96 @@
+package com.mariuszilinskas.vsp.users.profile.dto;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mariuszilinskas.vsp.users.profile.model.Avatar;
+import com.mariuszilinskas.vsp.users.profile.model.AvatarRendition;
+import com.mariuszilinskas.vsp.users.profile.model.Profile;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Benchmarks Jackson serialization of the response records against the JPA entities they replaced.
+ *
+ * @author Marius Zilinskas
+ */
+@State(Scope.Benchmark)
+public class SerializationBenchmark {
+
+    private static final int[] SIZES = {64, 128, 256, 512};
+    private static final String[] FORMATS = {"png"};
+
+    @Param({"5"})
+    private int profileCount;
+
+    @Param({"50"})
+    private int avatarCount;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private List<ProfileResponse> profileResponses;
+    private List<Profile> profiles;
+    private List<AvatarResponse> avatarResponses;
+    private List<Avatar> avatars;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        avatars = new ArrayList<>();
+        avatarResponses = new ArrayList<>();
+        for (int i = 0; i < avatarCount; i++) {
+            Avatar avatar = new Avatar();
+            avatar.setId(UUID.randomUUID());
+            avatar.setAvatarName("Avatar " + i);
+            avatar.setObjectKey(UUID.randomUUID() + ".png");
+            String imageUrl = "https://cdn.example.com/" + avatar.getObjectKey();
+            List<AvatarRenditionResponse> renditionResponses = new ArrayList<>();
+            for (int size : SIZES) {
+                for (String format : FORMATS) {
+                    String key = avatar.getObjectKey() + "-" + size + "." + format;
+                    avatar.getRenditions().add(new AvatarRendition(size, format, key));
+                    renditionResponses.add(new AvatarRenditionResponse(size, format, "https://cdn.example.com/" + key));
+                }
+            }
+            avatars.add(avatar);
+            avatarResponses.add(new AvatarResponse(avatar.getId(), avatar.getAvatarName(), imageUrl, renditionResponses));
+        }
+
+        profiles = new ArrayList<>();
+        profileResponses = new ArrayList<>();
+        UUID userId = UUID.randomUUID();
+        for (int i = 0; i < profileCount; i++) {
+            Avatar avatar = avatars.get(i % avatars.size());
+            Profile profile = new Profile();
+            profile.setId(UUID.randomUUID());
+            profile.setUserId(userId);
+            profile.setProfileName("Profile " + i);
+            profile.setAvatar(avatar);
+            profiles.add(profile);
+            profileResponses.add(new ProfileResponse(profile.getId(), profile.getProfileName(), false,
+                    avatar.getId(), avatarResponses.get(i % avatars.size()).imageUrl()));
+        }
+    }
+
+    @Benchmark
+    public byte[] serializeProfileResponses() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(profileResponses);
+    }
+
+    @Benchmark
+    public byte[] serializeProfileEntities() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(profiles);
+    }
+
+    @Benchmark
+    public byte[] serializeAvatarResponses() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(avatarResponses);
+    }
+
+    @Benchmark
+    public byte[] serializeAvatarEntities() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(avatars);
+    }
+
+}
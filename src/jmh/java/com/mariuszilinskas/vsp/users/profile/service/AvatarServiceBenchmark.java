@@ -0,0 +1,77 @@
+package com.mariuszilinskas.vsp.users.profile.service;
+
+import com.mariuszilinskas.vsp.users.profile.BenchmarkContext;
+import com.mariuszilinskas.vsp.users.profile.dto.AvatarResponse;
+import com.mariuszilinskas.vsp.users.profile.dto.EncodedAvatarCatalog;
+import com.mariuszilinskas.vsp.users.profile.dto.CreateAvatarStreamRequest;
+import com.mariuszilinskas.vsp.users.profile.model.Avatar;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Benchmarks random avatar selection, the catalog read and object key derivation.
+ *
+ * @author Marius Zilinskas
+ */
+@State(Scope.Benchmark)
+public class AvatarServiceBenchmark {
+
+    @Param({"50"})
+    private int catalogSize;
+
+    @Param({"262144"})
+    private int uploadBytes;
+
+    private ConfigurableApplicationContext context;
+    private AvatarService avatarService;
+    private byte[] upload;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start();
+        avatarService = context.getBean(AvatarService.class);
+        for (int i = 0; i < catalogSize; i++) {
+            avatarService.createAvatar(new CreateAvatarStreamRequest(
+                    "Avatar " + i, "avatar.png", "image/png", new ByteArrayInputStream(BenchmarkContext.png(64, i))));
+        }
+        upload = new byte[uploadBytes];
+        ThreadLocalRandom.current().nextBytes(upload);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Avatar getRandomAvatar() {
+        return avatarService.getRandomAvatar();
+    }
+
+    @Benchmark
+    public List<AvatarResponse> getAvatars() {
+        return avatarService.getAvatars();
+    }
+
+    @Benchmark
+    public EncodedAvatarCatalog getEncodedAvatars() {
+        return avatarService.getEncodedAvatars();
+    }
+
+    @Benchmark
+    public String getFileExtension() {
+        return AvatarServiceImpl.getFileExtension("Avatar Image.PNG");
+    }
+
+    @Benchmark
+    public String generateObjectKey() throws IOException {
+        return AvatarServiceImpl.hashContent(new ByteArrayInputStream(upload))
+                + AvatarServiceImpl.getFileExtension("avatar.png");
+    }
+
+}
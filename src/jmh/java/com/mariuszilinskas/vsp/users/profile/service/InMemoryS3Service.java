@@ -0,0 +1,74 @@
+package com.mariuszilinskas.vsp.users.profile.service;
+
+import com.mariuszilinskas.vsp.users.profile.dto.S3UploadResult;
+import org.springframework.context.annotation.Primary;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory {@link S3Service} stand-in, so that benchmarks measure the service code rather than the network.
+ *
+ * @author Marius Zilinskas
+ */
+@Primary
+public class InMemoryS3Service implements S3Service {
+
+    private final Map<String, byte[]> objects = new ConcurrentHashMap<>();
+
+    @Override
+    public void uploadFile(String bucketName, String objectKey, MultipartFile file) throws IOException {
+        objects.put(bucketName + "/" + objectKey, file.getBytes());
+    }
+
+    @Override
+    public void uploadFile(String bucketName, String objectKey, byte[] content, String contentType) {
+        objects.put(bucketName + "/" + objectKey, content);
+    }
+
+    @Override
+    public S3UploadResult uploadStream(String bucketName, String objectKey, InputStream inputStream, String contentType) {
+        try {
+            byte[] content = inputStream.readAllBytes();
+            objects.put(bucketName + "/" + objectKey, content);
+            byte[] checksum = MessageDigest.getInstance("SHA-256").digest(content);
+            return new S3UploadResult(content.length, HexFormat.of().formatHex(checksum));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public InputStream downloadFile(String bucketName, String objectKey) {
+        return new ByteArrayInputStream(objects.get(bucketName + "/" + objectKey));
+    }
+
+    @Override
+    public void copyFile(String bucketName, String sourceKey, String targetKey) {
+        objects.put(bucketName + "/" + targetKey, objects.get(bucketName + "/" + sourceKey));
+    }
+
+    @Override
+    public void deleteFile(String objectKey, String bucketName) {
+        objects.remove(bucketName + "/" + objectKey);
+    }
+
+    @Override
+    public List<String> deleteFiles(String bucketName, Collection<String> objectKeys) {
+        objectKeys.forEach(objectKey -> objects.remove(bucketName + "/" + objectKey));
+        return List.of();
+    }
+
+}
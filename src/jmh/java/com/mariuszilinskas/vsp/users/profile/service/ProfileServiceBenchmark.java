@@ -0,0 +1,78 @@
+package com.mariuszilinskas.vsp.users.profile.service;
+
+import com.mariuszilinskas.vsp.users.profile.BenchmarkContext;
+import com.mariuszilinskas.vsp.users.profile.dto.CreateAvatarStreamRequest;
+import com.mariuszilinskas.vsp.users.profile.dto.CreateUserProfileRequest;
+import com.mariuszilinskas.vsp.users.profile.dto.ProfileResponse;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.ByteArrayInputStream;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Benchmarks the profile read and write paths against the embedded H2 database.
+ *
+ * @author Marius Zilinskas
+ */
+@State(Scope.Benchmark)
+public class ProfileServiceBenchmark {
+
+    @Param({"5"})
+    private int profilesPerUser;
+
+    private ConfigurableApplicationContext context;
+    private ProfileService profileService;
+    private ProfileCache profileCache;
+
+    private UUID userId;
+    private UUID profileId;
+    private CreateUserProfileRequest updateRequest;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start();
+        profileService = context.getBean(ProfileService.class);
+        profileCache = context.getBean(ProfileCache.class);
+        AvatarService avatarService = context.getBean(AvatarService.class);
+
+        UUID avatarId = avatarService.createAvatar(new CreateAvatarStreamRequest(
+                "Default", "avatar.png", "image/png", new ByteArrayInputStream(BenchmarkContext.png(256, 1)))).id();
+
+        userId = UUID.randomUUID();
+        for (int i = 0; i < profilesPerUser; i++) {
+            ProfileResponse profile = profileService.createUserProfile(
+                    userId, new CreateUserProfileRequest("Profile " + i, avatarId, i % 2 == 0));
+            profileId = profile.id();
+        }
+        updateRequest = new CreateUserProfileRequest("Renamed", avatarId, true);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<ProfileResponse> getAllUserProfiles() {
+        return profileService.getAllUserProfiles(userId);
+    }
+
+    @Benchmark
+    public List<ProfileResponse> getAllUserProfilesUncached() {
+        profileCache.evict(userId);
+        return profileService.getAllUserProfiles(userId);
+    }
+
+    @Benchmark
+    public ProfileResponse getUserProfile() {
+        return profileService.getUserProfile(userId, profileId);
+    }
+
+    @Benchmark
+    public ProfileResponse updateUserProfile() {
+        return profileService.updateUserProfile(userId, profileId, updateRequest);
+    }
+
+}
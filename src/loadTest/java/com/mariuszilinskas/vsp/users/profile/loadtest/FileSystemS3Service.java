@@ -0,0 +1,117 @@
+package com.mariuszilinskas.vsp.users.profile.loadtest;
+
+import com.mariuszilinskas.vsp.users.profile.dto.S3UploadResult;
+import com.mariuszilinskas.vsp.users.profile.service.S3Service;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Filesystem-backed {@link S3Service} stand-in for load tests.
+ * Objects are stored as files under {@code <root>/<bucket>/<objectKey>}, so uploads and downloads
+ * still pay for real I/O without needing AWS credentials or network access.
+ *
+ * @author Marius Zilinskas
+ */
+@Primary
+public class FileSystemS3Service implements S3Service {
+
+    private final Path root;
+
+    public FileSystemS3Service(@Value("${loadtest.s3-root}") Path root) {
+        this.root = root;
+    }
+
+    @Override
+    public void uploadFile(String bucketName, String objectKey, MultipartFile file) throws IOException {
+        file.transferTo(createParents(resolve(bucketName, objectKey)));
+    }
+
+    @Override
+    public void uploadFile(String bucketName, String objectKey, byte[] content, String contentType) {
+        try {
+            Files.write(createParents(resolve(bucketName, objectKey)), content);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public S3UploadResult uploadStream(String bucketName, String objectKey, InputStream inputStream, String contentType) {
+        try (DigestInputStream digestStream = new DigestInputStream(inputStream, MessageDigest.getInstance("SHA-256"))) {
+            long contentLength = Files.copy(digestStream, createParents(resolve(bucketName, objectKey)),
+                    StandardCopyOption.REPLACE_EXISTING);
+            String checksum = HexFormat.of().formatHex(digestStream.getMessageDigest().digest());
+            return new S3UploadResult(contentLength, checksum);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public InputStream downloadFile(String bucketName, String objectKey) {
+        try {
+            return Files.newInputStream(resolve(bucketName, objectKey));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void copyFile(String bucketName, String sourceKey, String targetKey) {
+        try {
+            Files.copy(resolve(bucketName, sourceKey), createParents(resolve(bucketName, targetKey)),
+                    StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void deleteFile(String objectKey, String bucketName) {
+        try {
+            Files.deleteIfExists(resolve(bucketName, objectKey));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public List<String> deleteFiles(String bucketName, Collection<String> objectKeys) {
+        List<String> failedKeys = new ArrayList<>();
+        for (String objectKey : objectKeys) {
+            try {
+                Files.deleteIfExists(resolve(bucketName, objectKey));
+            } catch (IOException e) {
+                failedKeys.add(objectKey);
+            }
+        }
+        return failedKeys;
+    }
+
+    private Path resolve(String bucketName, String objectKey) {
+        return root.resolve(bucketName).resolve(objectKey);
+    }
+
+    private Path createParents(Path path) throws IOException {
+        Files.createDirectories(path.getParent());
+        return path;
+    }
+
+}
@@ -0,0 +1,41 @@
+package com.mariuszilinskas.vsp.users.profile.loadtest;
+
+import com.mariuszilinskas.vsp.users.profile.ProfileServiceApplication;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+
+/**
+ * Starts the service with the {@code loadtest} profile, with a filesystem-backed S3 stand-in,
+ * an in-JVM RabbitMQ stand-in and an embedded H2 database, and runs the {@link LoadTestDriver} against it.
+ * Settings under {@code loadtest.*} can be overridden on the command line, e.g. {@code --loadtest.concurrency=256}.
+ *
+ * @author Marius Zilinskas
+ */
+public final class LoadTestApplication {
+
+    private static final Logger logger = LoggerFactory.getLogger(LoadTestApplication.class);
+
+    private LoadTestApplication() {
+        // Private constructor to prevent instantiation
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(ProfileServiceApplication.class,
+                FileSystemS3Service.class, LocalAmqpBroker.class, LoadTestMetrics.class, LoadTestDriver.class)
+                .profiles("ci", "loadtest")
+                .run(args);
+        try {
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            String report = context.getBean(LoadTestDriver.class).run(URI.create("http://localhost:" + port));
+            logger.info("Load test report:\n{}", report);
+        } finally {
+            context.close();
+        }
+    }
+
+}
@@ -0,0 +1,295 @@
+package com.mariuszilinskas.vsp.users.profile.loadtest;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mariuszilinskas.vsp.users.profile.dto.CreateAvatarStreamRequest;
+import com.mariuszilinskas.vsp.users.profile.dto.CreateUserDefaultProfileRequest;
+import com.mariuszilinskas.vsp.users.profile.dto.CreateUserProfileRequest;
+import com.mariuszilinskas.vsp.users.profile.service.AvatarService;
+import com.mariuszilinskas.vsp.users.profile.service.ProfileService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.core.AmqpTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.Environment;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Replays a weighted mix of profile API requests and profile-setup/delete-user-data messages
+ * against a running instance from a fixed number of concurrent workers (a closed-loop load model),
+ * then reports throughput and latency percentiles per operation.
+ * HTTP latency is measured from request to response, message latency from publish to acknowledgement.
+ *
+ * @author Marius Zilinskas
+ */
+public class LoadTestDriver {
+
+    private static final Logger logger = LoggerFactory.getLogger(LoadTestDriver.class);
+
+    private final ProfileService profileService;
+    private final AvatarService avatarService;
+    private final AmqpTemplate amqpTemplate;
+    private final LoadTestMetrics metrics;
+    private final ObjectMapper objectMapper;
+
+    private final String exchange;
+    private final String profileSetupRoutingKey;
+    private final String deleteUserDataRoutingKey;
+    private final int users;
+    private final int profilesPerUser;
+    private final int concurrency;
+    private final Duration warmup;
+    private final Duration duration;
+    private final Map<String, Integer> mix;
+
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .build();
+    private final List<SeededUser> seededUsers = new ArrayList<>();
+    private final Queue<UUID> setUpUserIds = new ConcurrentLinkedQueue<>();
+    private final AtomicLong sequence = new AtomicLong();
+
+    private URI baseUri;
+    private UUID avatarId;
+
+    public LoadTestDriver(
+            ProfileService profileService,
+            AvatarService avatarService,
+            AmqpTemplate amqpTemplate,
+            LoadTestMetrics metrics,
+            ObjectMapper objectMapper,
+            Environment environment,
+            @Value("${rabbitmq.exchange}") String exchange,
+            @Value("${rabbitmq.routing-keys.profile-setup}") String profileSetupRoutingKey,
+            @Value("${rabbitmq.routing-keys.delete-user-data}") String deleteUserDataRoutingKey,
+            @Value("${loadtest.users}") int users,
+            @Value("${loadtest.profiles-per-user}") int profilesPerUser,
+            @Value("${loadtest.concurrency}") int concurrency,
+            @Value("${loadtest.warmup}") Duration warmup,
+            @Value("${loadtest.duration}") Duration duration
+    ) {
+        this.profileService = profileService;
+        this.avatarService = avatarService;
+        this.amqpTemplate = amqpTemplate;
+        this.metrics = metrics;
+        this.objectMapper = objectMapper;
+        this.exchange = exchange;
+        this.profileSetupRoutingKey = profileSetupRoutingKey;
+        this.deleteUserDataRoutingKey = deleteUserDataRoutingKey;
+        this.users = users;
+        this.profilesPerUser = profilesPerUser;
+        this.concurrency = concurrency;
+        this.warmup = warmup;
+        this.duration = duration;
+        this.mix = Binder.get(environment).bind("loadtest.mix", Bindable.mapOf(String.class, Integer.class))
+                .orElseThrow(() -> new IllegalStateException("loadtest.mix must be configured"));
+    }
+
+    /**
+     * Seeds the database, runs the warm-up and measurement phases against {@code baseUri} and returns the report.
+     */
+    public String run(URI baseUri) throws InterruptedException {
+        this.baseUri = baseUri;
+        seed();
+
+        Operation[] schedule = Operation.schedule(mix);
+        long end = System.nanoTime() + warmup.plus(duration).toNanos();
+        logger.info("Running {} workers for {} warm-up and {} measurement against {}", concurrency, warmup, duration, baseUri);
+        try (ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < concurrency; i++) {
+                workers.submit(() -> {
+                    while (System.nanoTime() < end) {
+                        execute(schedule[ThreadLocalRandom.current().nextInt(schedule.length)]);
+                    }
+                });
+            }
+            Thread.sleep(warmup);
+            metrics.start();
+            Thread.sleep(duration);
+            metrics.stop();
+        }
+        return metrics.report();
+    }
+
+    /**
+     * Creates one avatar and {@code users} users with {@code profilesPerUser} profiles each, bypassing HTTP.
+     */
+    private void seed() {
+        logger.info("Seeding {} users with {} profiles each", users, profilesPerUser);
+        avatarId = avatarService.createAvatar(new CreateAvatarStreamRequest(
+                "Load Test", "avatar.png", "image/png", new ByteArrayInputStream(png(512)))).id();
+        for (int i = 0; i < users; i++) {
+            UUID userId = UUID.randomUUID();
+            List<UUID> profileIds = new ArrayList<>(profilesPerUser);
+            for (int j = 0; j < profilesPerUser; j++) {
+                profileIds.add(profileService.createUserProfile(
+                        userId, new CreateUserProfileRequest("Profile " + j, avatarId, j == profilesPerUser - 1)).id());
+            }
+            seededUsers.add(new SeededUser(userId, List.copyOf(profileIds)));
+        }
+    }
+
+    private void execute(Operation operation) {
+        long start = System.nanoTime();
+        boolean succeeded;
+        try {
+            succeeded = switch (operation) {
+                case GET_PROFILES -> send(get("/profile/" + randomUser().userId())) == 200;
+                case GET_PROFILE -> {
+                    SeededUser user = randomUser();
+                    yield send(get("/profile/" + user.userId() + "/" + user.randomProfileId())) == 200;
+                }
+                case CREATE_PROFILE -> send(post("/profile/" + UUID.randomUUID(),
+                        new CreateUserProfileRequest("Profile", avatarId, false))) == 201;
+                case UPDATE_PROFILE -> {
+                    SeededUser user = randomUser();
+                    yield send(put("/profile/" + user.userId() + "/" + user.randomProfileId(),
+                            new CreateUserProfileRequest("Profile " + sequence.incrementAndGet(), avatarId, false))) == 200;
+                }
+                case PROFILE_SETUP -> {
+                    UUID userId = UUID.randomUUID();
+                    amqpTemplate.convertAndSend(exchange, profileSetupRoutingKey,
+                            new CreateUserDefaultProfileRequest(userId, "Load Test"));
+                    setUpUserIds.add(userId);
+                    yield true;
+                }
+                case DELETE_USER_DATA -> {
+                    // Delete users created by profile-setup messages, so the seeded data set stays stable
+                    UUID userId = setUpUserIds.poll();
+                    amqpTemplate.convertAndSend(exchange, deleteUserDataRoutingKey,
+                            userId != null ? userId : UUID.randomUUID());
+                    yield true;
+                }
+            };
+        } catch (IOException e) {
+            succeeded = false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+
+        if (operation.isHttp()) {
+            metrics.record(operation.label, System.nanoTime() - start);
+            if (!succeeded) {
+                metrics.recordFailure(operation.label);
+            }
+        }
+    }
+
+    private SeededUser randomUser() {
+        return seededUsers.get(ThreadLocalRandom.current().nextInt(seededUsers.size()));
+    }
+
+    private int send(HttpRequest.Builder request) throws IOException, InterruptedException {
+        return httpClient.send(request.build(), HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    private HttpRequest.Builder get(String path) {
+        return HttpRequest.newBuilder(baseUri.resolve(path)).GET();
+    }
+
+    private HttpRequest.Builder post(String path, Object body) throws JsonProcessingException {
+        return HttpRequest.newBuilder(baseUri.resolve(path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body)));
+    }
+
+    private HttpRequest.Builder put(String path, Object body) throws JsonProcessingException {
+        return HttpRequest.newBuilder(baseUri.resolve(path))
+                .header("Content-Type", "application/json")
+                .PUT(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body)));
+    }
+
+    private static byte[] png(int size) {
+        BufferedImage image = new BufferedImage(size, size, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        try {
+            graphics.setColor(Color.ORANGE);
+            graphics.fillRect(0, 0, size, size);
+        } finally {
+            graphics.dispose();
+        }
+        try {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            ImageIO.write(image, "png", output);
+            return output.toByteArray();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private record SeededUser(UUID userId, List<UUID> profileIds) {
+
+        UUID randomProfileId() {
+            return profileIds.get(ThreadLocalRandom.current().nextInt(profileIds.size()));
+        }
+
+    }
+
+    private enum Operation {
+
+        GET_PROFILES("get-profiles", "GET /profile/{userId}"),
+        GET_PROFILE("get-profile", "GET /profile/{userId}/{profileId}"),
+        CREATE_PROFILE("create-profile", "POST /profile/{userId}"),
+        UPDATE_PROFILE("update-profile", "PUT /profile/{userId}/{profileId}"),
+        PROFILE_SETUP("profile-setup", "message profile-setup"),
+        DELETE_USER_DATA("delete-user-data", "message delete-user-data");
+
+        private final String key;
+        private final String label;
+
+        Operation(String key, String label) {
+            this.key = key;
+            this.label = label;
+        }
+
+        /**
+         * Message latency is recorded by the broker on acknowledgement, not when publishing.
+         */
+        boolean isHttp() {
+            return this != PROFILE_SETUP && this != DELETE_USER_DATA;
+        }
+
+        /**
+         * Expands the configured weights into a table to pick operations from uniformly.
+         */
+        static Operation[] schedule(Map<String, Integer> mix) {
+            List<Operation> schedule = new ArrayList<>();
+            for (Operation operation : values()) {
+                for (int i = 0; i < mix.getOrDefault(operation.key, 0); i++) {
+                    schedule.add(operation);
+                }
+            }
+            if (schedule.isEmpty()) {
+                throw new IllegalStateException("loadtest.mix must give at least one operation a positive weight");
+            }
+            return schedule.toArray(Operation[]::new);
+        }
+
+    }
+
+}
@@ -0,0 +1,106 @@
+package com.mariuszilinskas.vsp.users.profile.loadtest;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records the latency and failures of every load test operation while the measurement window is open,
+ * in a registry of its own so that the application's metrics are left untouched.
+ *
+ * @author Marius Zilinskas
+ */
+public class LoadTestMetrics {
+
+    private static final double[] PERCENTILES = {0.5, 0.99, 0.999};
+
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+    private final Duration statisticExpiry;
+
+    private volatile boolean recording;
+    private volatile long startedAt;
+    private volatile long stoppedAt;
+
+    public LoadTestMetrics(
+            @Value("${loadtest.warmup}") Duration warmup,
+            @Value("${loadtest.duration}") Duration duration
+    ) {
+        // Keep every sample of the run in one histogram instead of rotating it out mid-run
+        this.statisticExpiry = warmup.plus(duration).multipliedBy(2);
+    }
+
+    /**
+     * Opens the measurement window, operations completing before this are treated as warm-up.
+     */
+    public void start() {
+        startedAt = System.nanoTime();
+        recording = true;
+    }
+
+    /**
+     * Closes the measurement window, operations completing after this are not recorded.
+     */
+    public void stop() {
+        recording = false;
+        stoppedAt = System.nanoTime();
+    }
+
+    public void record(String operation, long durationNanos) {
+        if (recording) {
+            timer(operation).record(durationNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    public void recordFailure(String operation) {
+        if (recording) {
+            failures(operation).increment();
+        }
+    }
+
+    private Timer timer(String operation) {
+        return Timer.builder("loadtest.latency")
+                .tag("operation", operation)
+                .publishPercentiles(PERCENTILES)
+                .percentilePrecision(3)
+                .distributionStatisticExpiry(statisticExpiry)
+                .distributionStatisticBufferLength(1)
+                .register(registry);
+    }
+
+    private Counter failures(String operation) {
+        return registry.counter("loadtest.failures", "operation", operation);
+    }
+
+    /**
+     * Formats the throughput and latency percentiles of each operation as a table.
+     */
+    public String report() {
+        double seconds = (stoppedAt - startedAt) / 1e9;
+        StringBuilder report = new StringBuilder(String.format("%n%-32s %10s %10s %10s %10s %10s %10s%n",
+                "Operation", "Count", "Failures", "Ops/s", "p50 (ms)", "p99 (ms)", "p99.9 (ms)"));
+
+        registry.find("loadtest.latency").timers().stream()
+                .sorted(Comparator.comparing(timer -> timer.getId().getTag("operation")))
+                .forEach(timer -> {
+                    String operation = timer.getId().getTag("operation");
+                    ValueAtPercentile[] percentiles = timer.takeSnapshot().percentileValues();
+                    report.append(String.format("%-32s %10d %10d %10.1f %10.2f %10.2f %10.2f%n",
+                            operation,
+                            timer.count(),
+                            (long) failures(operation).count(),
+                            timer.count() / seconds,
+                            percentiles[0].value(TimeUnit.MILLISECONDS),
+                            percentiles[1].value(TimeUnit.MILLISECONDS),
+                            percentiles[2].value(TimeUnit.MILLISECONDS)));
+                });
+        return report.toString();
+    }
+
+}
@@ -0,0 +1,221 @@
+package com.mariuszilinskas.vsp.users.profile.loadtest;
+
+import com.mariuszilinskas.vsp.users.profile.consumer.RabbitMQConsumer;
+import com.rabbitmq.client.Channel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.context.annotation.Primary;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-JVM stand-in for the RabbitMQ broker, used in place of the {@link RabbitTemplate} during load tests.
+ * Messages are converted exactly as they would be for RabbitMQ, routed by routing key to a local queue
+ * and delivered to {@link RabbitMQConsumer} in batches, mirroring the batch size, receive timeout
+ * and manual acknowledgements of the listener containers in {@code RabbitMQConfig}.
+ * The time from publish to acknowledgement is recorded per queue.
+ *
+ * @author Marius Zilinskas
+ */
+@Primary
+public class LocalAmqpBroker extends RabbitTemplate {
+
+    private static final Logger logger = LoggerFactory.getLogger(LocalAmqpBroker.class);
+
+    private final Map<String, LocalQueue> queues;
+    private final LoadTestMetrics metrics;
+
+    public LocalAmqpBroker(
+            ObjectProvider<RabbitMQConsumer> consumer,
+            MessageConverter jacksonConverter,
+            LoadTestMetrics metrics,
+            @Value("${rabbitmq.routing-keys.profile-setup}") String profileSetupRoutingKey,
+            @Value("${rabbitmq.batch.profile-setup.size}") int profileSetupBatchSize,
+            @Value("${rabbitmq.batch.profile-setup.receive-timeout}") Duration profileSetupReceiveTimeout,
+            @Value("${rabbitmq.routing-keys.delete-user-data}") String deleteUserDataRoutingKey,
+            @Value("${rabbitmq.batch.delete-user-data.size}") int deleteUserDataBatchSize,
+            @Value("${rabbitmq.batch.delete-user-data.receive-timeout}") Duration deleteUserDataReceiveTimeout
+    ) {
+        setMessageConverter(jacksonConverter);
+        this.metrics = metrics;
+        // The consumer is resolved on delivery, it depends on services that depend on this template
+        this.queues = Map.of(
+                profileSetupRoutingKey, new LocalQueue("message profile-setup",
+                        profileSetupBatchSize, profileSetupReceiveTimeout,
+                        (messages, channel) -> consumer.getObject().consumeCreateDefaultUserProfileMessages(messages, channel)),
+                deleteUserDataRoutingKey, new LocalQueue("message delete-user-data",
+                        deleteUserDataBatchSize, deleteUserDataReceiveTimeout,
+                        (messages, channel) -> consumer.getObject().consumeDeleteUserDataMessages(messages, channel))
+        );
+    }
+
+    /**
+     * Routes the message to the local queue bound with its routing key.
+     * Messages without a queue, such as cache invalidations with only this instance running, are dropped.
+     */
+    @Override
+    public void send(String exchange, String routingKey, Message message, CorrelationData correlationData) {
+        LocalQueue queue = queues.get(routingKey);
+        if (queue == null) {
+            logger.debug("No local queue bound with routing key '{}', dropping message", routingKey);
+            return;
+        }
+        queue.offer(message);
+    }
+
+    /**
+     * Starts delivering once the application is ready, messages published earlier wait in their queues.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void startDelivery() {
+        queues.values().forEach(LocalQueue::start);
+    }
+
+    @Override
+    public void destroy() {
+        queues.values().forEach(LocalQueue::stop);
+        super.destroy();
+    }
+
+    @FunctionalInterface
+    private interface BatchListener {
+        void onMessages(List<Message> messages, Channel channel) throws IOException;
+    }
+
+    private record Pending(Message message, long publishedAt) {}
+
+    private final class LocalQueue {
+
+        private final String name;
+        private final int batchSize;
+        private final Duration receiveTimeout;
+        private final BatchListener listener;
+        private final BlockingQueue<Pending> pending = new LinkedBlockingQueue<>();
+        private final AtomicLong deliveryTags = new AtomicLong();
+        private Thread dispatcher;
+
+        private LocalQueue(String name, int batchSize, Duration receiveTimeout, BatchListener listener) {
+            this.name = name;
+            this.batchSize = batchSize;
+            this.receiveTimeout = receiveTimeout;
+            this.listener = listener;
+        }
+
+        void offer(Message message) {
+            pending.add(new Pending(message, System.nanoTime()));
+        }
+
+        void start() {
+            dispatcher = Thread.ofPlatform().name("local-amqp-" + name).daemon().start(this::dispatch);
+        }
+
+        void stop() {
+            if (dispatcher != null) {
+                dispatcher.interrupt();
+            }
+        }
+
+        /**
+         * Waits for a first message, then for up to {@code receiveTimeout} for the batch to fill.
+         */
+        private void dispatch() {
+            while (!Thread.currentThread().isInterrupted()) {
+                List<Pending> batch = new ArrayList<>(batchSize);
+                try {
+                    batch.add(pending.take());
+                    long deadline = System.nanoTime() + receiveTimeout.toNanos();
+                    while (batch.size() < batchSize) {
+                        Pending next = pending.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                        if (next == null) {
+                            break;
+                        }
+                        batch.add(next);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                deliver(batch);
+            }
+        }
+
+        private void deliver(List<Pending> batch) {
+            Map<Long, Pending> unsettled = new LinkedHashMap<>();
+            List<Message> messages = new ArrayList<>(batch.size());
+            for (Pending delivery : batch) {
+                long deliveryTag = deliveryTags.incrementAndGet();
+                delivery.message().getMessageProperties().setDeliveryTag(deliveryTag);
+                unsettled.put(deliveryTag, delivery);
+                messages.add(delivery.message());
+            }
+
+            Channel channel = (Channel) Proxy.newProxyInstance(Channel.class.getClassLoader(), new Class<?>[]{Channel.class},
+                    (proxy, method, args) -> acknowledge(unsettled, method, args));
+            try {
+                listener.onMessages(messages, channel);
+            } catch (Exception e) {
+                logger.error("Listener for {} failed: {}", name, e.getMessage());
+            }
+
+            // Like a closed channel, anything left unacknowledged is redelivered
+            unsettled.values().forEach(pending::add);
+        }
+
+        private Object acknowledge(Map<Long, Pending> unsettled, Method method, Object[] args) {
+            switch (method.getName()) {
+                case "basicAck" -> settle(unsettled, (long) args[0], (boolean) args[1], Outcome.ACKED);
+                case "basicNack" -> settle(unsettled, (long) args[0], (boolean) args[1],
+                        (boolean) args[2] ? Outcome.REQUEUED : Outcome.REJECTED);
+                default -> throw new UnsupportedOperationException("Channel." + method.getName() + " is not supported");
+            }
+            return null;
+        }
+
+        private void settle(Map<Long, Pending> unsettled, long deliveryTag, boolean multiple, Outcome outcome) {
+            // Like a real channel, settling a tag that is not outstanding is a channel error
+            if (!unsettled.containsKey(deliveryTag)) {
+                throw new IllegalStateException("PRECONDITION_FAILED - unknown delivery tag " + deliveryTag);
+            }
+            Iterator<Map.Entry<Long, Pending>> deliveries = unsettled.entrySet().iterator();
+            while (deliveries.hasNext()) {
+                Map.Entry<Long, Pending> delivery = deliveries.next();
+                if (delivery.getKey() != deliveryTag && !(multiple && delivery.getKey() < deliveryTag)) {
+                    continue;
+                }
+                deliveries.remove();
+                switch (outcome) {
+                    case ACKED -> metrics.record(name, System.nanoTime() - delivery.getValue().publishedAt());
+                    case REJECTED -> {
+                        metrics.record(name, System.nanoTime() - delivery.getValue().publishedAt());
+                        metrics.recordFailure(name);
+                    }
+                    case REQUEUED -> pending.add(delivery.getValue());
+                }
+            }
+        }
+
+    }
+
+    private enum Outcome { ACKED, REJECTED, REQUEUED }
+
+}
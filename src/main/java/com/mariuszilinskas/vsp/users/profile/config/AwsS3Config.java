@@ -1,5 +1,6 @@
 package com.mariuszilinskas.vsp.users.profile.config;
 
+import com.amazonaws.ClientConfiguration;
 import com.amazonaws.auth.AWSStaticCredentialsProvider;
 import com.amazonaws.auth.BasicAWSCredentials;
 import com.amazonaws.services.s3.AmazonS3;
@@ -20,12 +21,19 @@ public class AwsS3Config {
     @Value("${aws.s3.region}")
     private String region;
 
+    @Value("${aws.s3.max-connections}")
+    private int maxConnections;
+
     @Bean
     public AmazonS3 s3Client() {
         BasicAWSCredentials credentials = new BasicAWSCredentials(accessKey, secretKey);
+        // Bounds concurrent S3 requests independently of the (possibly virtual) calling threads
+        ClientConfiguration clientConfiguration = new ClientConfiguration()
+                .withMaxConnections(maxConnections);
         return AmazonS3Client.builder()
                 .withRegion(region)
                 .withCredentials(new AWSStaticCredentialsProvider(credentials))
+                .withClientConfiguration(clientConfiguration)
                 .build();
     }
 
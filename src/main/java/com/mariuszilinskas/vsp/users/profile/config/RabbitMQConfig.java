@@ -2,14 +2,18 @@ package com.mariuszilinskas.vsp.users.profile.config;
 
 import lombok.RequiredArgsConstructor;
 import org.springframework.amqp.core.*;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
 import org.springframework.amqp.rabbit.connection.ConnectionFactory;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
 import org.springframework.amqp.support.converter.MessageConverter;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.amqp.SimpleRabbitListenerContainerFactoryConfigurer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.time.Duration;
+
 @Configuration
 @RequiredArgsConstructor
 public class RabbitMQConfig {
@@ -29,6 +33,21 @@ public class RabbitMQConfig {
     @Value("${rabbitmq.routing-keys.delete-user-data}")
     private String deleteUserDataRoutingKey;
 
+    @Value("${rabbitmq.routing-keys.cache-invalidation}")
+    private String cacheInvalidationRoutingKey;
+
+    @Value("${rabbitmq.batch.profile-setup.size}")
+    private int profileSetupBatchSize;
+
+    @Value("${rabbitmq.batch.profile-setup.receive-timeout}")
+    private Duration profileSetupReceiveTimeout;
+
+    @Value("${rabbitmq.batch.delete-user-data.size}")
+    private int deleteUserDataBatchSize;
+
+    @Value("${rabbitmq.batch.delete-user-data.receive-timeout}")
+    private Duration deleteUserDataReceiveTimeout;
+
     @Bean
     public DirectExchange exchange() {
         return new DirectExchange(exchange);
@@ -58,6 +77,65 @@ public class RabbitMQConfig {
                 .with(deleteUserDataRoutingKey);
     }
 
+    /**
+     * Each instance declares its own exclusive, auto-delete queue bound with the same routing key,
+     * so every instance receives a copy of each cache invalidation.
+     */
+    @Bean
+    public Queue cacheInvalidationQueue() {
+        return new AnonymousQueue();
+    }
+
+    @Bean
+    public Binding cacheInvalidationBinding() {
+        return BindingBuilder.bind(cacheInvalidationQueue())
+                .to(exchange())
+                .with(cacheInvalidationRoutingKey);
+    }
+
+    @Bean
+    public SimpleRabbitListenerContainerFactory profileSetupContainerFactory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer,
+            ConnectionFactory connectionFactory
+    ) {
+        return batchContainerFactory(configurer, connectionFactory,
+                profileSetupBatchSize, profileSetupReceiveTimeout);
+    }
+
+    /**
+     * The receive timeout doubles as the window over which user IDs are coalesced into one delete.
+     */
+    @Bean
+    public SimpleRabbitListenerContainerFactory deleteUserDataContainerFactory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer,
+            ConnectionFactory connectionFactory
+    ) {
+        return batchContainerFactory(configurer, connectionFactory,
+                deleteUserDataBatchSize, deleteUserDataReceiveTimeout);
+    }
+
+    /**
+     * Builds a listener container factory that delivers messages in batches of up to {@code batchSize},
+     * waiting at most {@code receiveTimeout} for a batch to fill. Messages are acknowledged manually
+     * by the listener so that a batch can be acked together while poison messages are rejected individually.
+     */
+    private SimpleRabbitListenerContainerFactory batchContainerFactory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer,
+            ConnectionFactory connectionFactory,
+            int batchSize,
+            Duration receiveTimeout
+    ) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        configurer.configure(factory, connectionFactory);
+        factory.setBatchListener(true);
+        factory.setConsumerBatchEnabled(true);
+        factory.setBatchSize(batchSize);
+        factory.setPrefetchCount(batchSize);
+        factory.setReceiveTimeout(receiveTimeout.toMillis());
+        factory.setAcknowledgeMode(AcknowledgeMode.MANUAL);
+        return factory;
+    }
+
     @Bean
     public AmqpTemplate amqpTemplate(ConnectionFactory connectionFactory) {
         RabbitTemplate rabbitTemplate = new RabbitTemplate(connectionFactory);
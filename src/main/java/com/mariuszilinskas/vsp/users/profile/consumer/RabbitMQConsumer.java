@@ -1,13 +1,30 @@
 package com.mariuszilinskas.vsp.users.profile.consumer;
 
+import com.mariuszilinskas.vsp.users.profile.config.StatementCounter;
+import com.mariuszilinskas.vsp.users.profile.dto.CacheInvalidationMessage;
 import com.mariuszilinskas.vsp.users.profile.dto.CreateUserDefaultProfileRequest;
+import com.mariuszilinskas.vsp.users.profile.service.CacheInvalidationService;
 import com.mariuszilinskas.vsp.users.profile.service.ProfileService;
+import com.rabbitmq.client.Channel;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.validation.Validator;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.amqp.core.Message;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.support.converter.MessageConverter;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 @Service
@@ -15,18 +32,178 @@ import java.util.UUID;
 public class RabbitMQConsumer {
 
     private static final Logger logger = LoggerFactory.getLogger(RabbitMQConsumer.class);
+    private static final String PROFILE_SETUP = "profile-setup";
+    private static final String DELETE_USER_DATA = "delete-user-data";
+    private static final String CACHE_INVALIDATION = "cache-invalidation";
     private final ProfileService profileService;
+    private final CacheInvalidationService cacheInvalidationService;
+    private final MessageConverter messageConverter;
+    private final Validator validator;
+    private final MeterRegistry meterRegistry;
+    private final StatementCounter statementCounter;
 
-    @RabbitListener(queues = "${rabbitmq.queues.profile-setup}")
-    public void consumeCreateDefaultUserProfileMessage(CreateUserDefaultProfileRequest request) {
-        logger.info("Received request to create user profile: {}", request);
-        profileService.createDefaultUserProfile(request);
+    /**
+     * Consumes profile setup messages in batches and creates all default profiles in one bulk insert.
+     * Messages that cannot be converted, fail validation or fail to insert are rejected individually,
+     * the rest of the batch is acknowledged together. If the batch fails as a whole, the rest of it is requeued.
+     */
+    @RabbitListener(queues = "${rabbitmq.queues.profile-setup}", containerFactory = "profileSetupContainerFactory")
+    public void consumeCreateDefaultUserProfileMessages(List<Message> messages, Channel channel) throws IOException {
+        logger.info("Received batch of {} requests to create user profiles", messages.size());
+        Timer.Sample sample = Timer.start(meterRegistry);
+        statementCounter.start();
+        Set<Long> rejectedTags = new HashSet<>();
+
+        Map<CreateUserDefaultProfileRequest, Long> deliveryTags = new IdentityHashMap<>();
+        List<CreateUserDefaultProfileRequest> requests = new ArrayList<>(messages.size());
+        for (Message message : messages) {
+            long deliveryTag = message.getMessageProperties().getDeliveryTag();
+            CreateUserDefaultProfileRequest request = convertMessage(message, CreateUserDefaultProfileRequest.class);
+            if (request == null) {
+                channel.basicNack(deliveryTag, false, false);
+                rejectedTags.add(deliveryTag);
+                continue;
+            }
+            deliveryTags.put(request, deliveryTag);
+            requests.add(request);
+        }
+
+        if (!requests.isEmpty()) {
+            try {
+                for (CreateUserDefaultProfileRequest failed : profileService.createDefaultUserProfiles(requests)) {
+                    channel.basicNack(deliveryTags.get(failed), false, false);
+                    rejectedTags.add(deliveryTags.get(failed));
+                }
+            } catch (Exception e) {
+                logger.error("Failed to create user profiles for batch, requeueing: {}", e.getMessage());
+                settleRemaining(channel, messages, rejectedTags, false);
+                recordBatch(PROFILE_SETUP, sample, 0, rejectedTags.size(), messages.size() - rejectedTags.size());
+                return;
+            }
+        }
+        settleRemaining(channel, messages, rejectedTags, true);
+        recordBatch(PROFILE_SETUP, sample, messages.size() - rejectedTags.size(), rejectedTags.size(), 0);
+    }
+
+    /**
+     * Consumes delete user data messages in batches, coalescing the user IDs received within
+     * the receive timeout into a single set-based delete. Unreadable messages are rejected individually,
+     * if the delete fails, the rest of the batch is requeued.
+     */
+    @RabbitListener(queues = "${rabbitmq.queues.delete-user-data}", containerFactory = "deleteUserDataContainerFactory")
+    public void consumeDeleteUserDataMessages(List<Message> messages, Channel channel) throws IOException {
+        logger.info("Received batch of {} requests to delete user data", messages.size());
+        Timer.Sample batchSample = Timer.start(meterRegistry);
+        statementCounter.start();
+        Set<Long> rejectedTags = new HashSet<>();
+
+        Set<UUID> userIds = new LinkedHashSet<>();
+        for (Message message : messages) {
+            long deliveryTag = message.getMessageProperties().getDeliveryTag();
+            UUID userId = convertMessage(message, UUID.class);
+            if (userId == null) {
+                channel.basicNack(deliveryTag, false, false);
+                rejectedTags.add(deliveryTag);
+                continue;
+            }
+            userIds.add(userId);
+        }
+
+        if (!userIds.isEmpty()) {
+            try {
+                Timer.Sample sample = Timer.start(meterRegistry);
+                int deletedProfiles = profileService.deleteAllUserProfiles(userIds);
+                sample.stop(meterRegistry.timer("profile.deletion.batch.duration"));
+                meterRegistry.summary("profile.deletion.batch.size").record(userIds.size());
+                meterRegistry.counter("profile.deletion.users").increment(userIds.size());
+                meterRegistry.counter("profile.deletion.profiles").increment(deletedProfiles);
+            } catch (Exception e) {
+                logger.error("Failed to delete user data for batch, requeueing: {}", e.getMessage());
+                settleRemaining(channel, messages, rejectedTags, false);
+                recordBatch(DELETE_USER_DATA, batchSample, 0, rejectedTags.size(), messages.size() - rejectedTags.size());
+                return;
+            }
+        }
+        settleRemaining(channel, messages, rejectedTags, true);
+        recordBatch(DELETE_USER_DATA, batchSample, messages.size() - rejectedTags.size(), rejectedTags.size(), 0);
+    }
+
+    /**
+     * Acknowledges, or requeues, every message of the batch that was not rejected, with a single multiple ack or nack.
+     * The ack is sent for the highest delivery tag that is still outstanding: settling a tag that was already rejected
+     * closes the channel, which would redeliver the whole batch again and again.
+     */
+    private void settleRemaining(Channel channel, List<Message> messages, Set<Long> rejectedTags, boolean acknowledge)
+            throws IOException {
+        for (int i = messages.size() - 1; i >= 0; i--) {
+            long deliveryTag = messages.get(i).getMessageProperties().getDeliveryTag();
+            if (rejectedTags.contains(deliveryTag)) {
+                continue;
+            }
+            if (acknowledge) {
+                channel.basicAck(deliveryTag, true);
+            } else {
+                channel.basicNack(deliveryTag, true, true);
+            }
+            return;
+        }
+    }
+
+    /**
+     * Consumes cache invalidations broadcast by other instances from this instance's own queue.
+     */
+    @RabbitListener(queues = "#{cacheInvalidationQueue.name}")
+    public void consumeCacheInvalidationMessage(CacheInvalidationMessage message) {
+        logger.debug("Received cache invalidation from instance '{}'", message.origin());
+        Timer.Sample sample = Timer.start(meterRegistry);
+        statementCounter.start();
+        boolean succeeded = false;
+        try {
+            cacheInvalidationService.handleInvalidation(message);
+            succeeded = true;
+        } finally {
+            recordBatch(CACHE_INVALIDATION, sample, succeeded ? 1 : 0, 0, succeeded ? 0 : 1);
+        }
+    }
+
+    /**
+     * Records how long a batch took to consume, how many SQL statements it executed
+     * and how its messages were settled: acknowledged, rejected or requeued.
+     */
+    private void recordBatch(String queue, Timer.Sample sample, int acked, int rejected, int requeued) {
+        sample.stop(Timer.builder("rabbitmq.consume")
+                .description("Time taken to consume a batch of messages")
+                .tag("queue", queue)
+                .tag("outcome", requeued > 0 ? "failure" : "success")
+                .publishPercentileHistogram()
+                .register(meterRegistry));
+        meterRegistry.summary("rabbitmq.consume.statements", "queue", queue).record(statementCounter.stop());
+        countMessages(queue, "acked", acked);
+        countMessages(queue, "rejected", rejected);
+        countMessages(queue, "requeued", requeued);
+    }
+
+    private void countMessages(String queue, String result, int count) {
+        if (count > 0) {
+            meterRegistry.counter("rabbitmq.consume.messages", "queue", queue, "result", result).increment(count);
+        }
     }
 
-    @RabbitListener(queues = "${rabbitmq.queues.delete-user-data}")
-    public void consumeDeleteUserDataMessage(UUID userId) {
-        logger.info("Received request to delete user data for User [userId: {}]", userId);
-        profileService.deleteAllUserProfiles(userId);
+    /**
+     * Converts and validates a message body, returning {@code null} if the message should be rejected.
+     */
+    private <T> T convertMessage(Message message, Class<T> type) {
+        try {
+            message.getMessageProperties().setInferredArgumentType(type);
+            T payload = type.cast(messageConverter.fromMessage(message));
+            if (payload != null && validator.validate(payload).isEmpty()) {
+                return payload;
+            }
+            logger.error("Rejecting invalid {} message: {}", type.getSimpleName(), payload);
+        } catch (Exception e) {
+            logger.error("Rejecting unreadable {} message: {}", type.getSimpleName(), e.getMessage());
+        }
+        return null;
     }
 
 }
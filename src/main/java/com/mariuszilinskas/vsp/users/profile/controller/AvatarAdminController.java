@@ -1,15 +1,18 @@
 package com.mariuszilinskas.vsp.users.profile.controller;
 
+import com.mariuszilinskas.vsp.users.profile.dto.AvatarResponse;
 import com.mariuszilinskas.vsp.users.profile.dto.CreateAvatarRequest;
-import com.mariuszilinskas.vsp.users.profile.model.Avatar;
+import com.mariuszilinskas.vsp.users.profile.dto.CreateAvatarStreamRequest;
 import com.mariuszilinskas.vsp.users.profile.service.AvatarService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.UUID;
 
 /**
@@ -26,12 +29,27 @@ public class AvatarAdminController {
     private final AvatarService avatarService;
 
     @PostMapping
-    public ResponseEntity<Avatar> createAvatar(
+    public ResponseEntity<AvatarResponse> createAvatar(
             @RequestPart("avatarName") String avatarName,
             @RequestPart("file") MultipartFile file
     ) throws IOException {
         CreateAvatarRequest request = new CreateAvatarRequest(avatarName, file);
-        Avatar response =  avatarService.createAvatar(request);
+        AvatarResponse response = avatarService.createAvatar(request);
+        return new ResponseEntity<>(response, HttpStatus.CREATED);
+    }
+
+    /**
+     * Creates an avatar from the raw request body, streaming it to S3 without buffering the whole file.
+     */
+    @PostMapping("/stream")
+    public ResponseEntity<AvatarResponse> createAvatarFromStream(
+            @RequestParam String avatarName,
+            @RequestParam String fileName,
+            @RequestHeader(value = HttpHeaders.CONTENT_TYPE, required = false) String contentType,
+            InputStream content
+    ) {
+        CreateAvatarStreamRequest request = new CreateAvatarStreamRequest(avatarName, fileName, contentType, content);
+        AvatarResponse response = avatarService.createAvatar(request);
         return new ResponseEntity<>(response, HttpStatus.CREATED);
     }
 
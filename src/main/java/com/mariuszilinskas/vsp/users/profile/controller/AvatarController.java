@@ -1,15 +1,23 @@
 package com.mariuszilinskas.vsp.users.profile.controller;
 
-import com.mariuszilinskas.vsp.users.profile.model.Avatar;
+import com.mariuszilinskas.vsp.users.profile.dto.AvatarCatalogDelta;
+import com.mariuszilinskas.vsp.users.profile.dto.AvatarPage;
+import com.mariuszilinskas.vsp.users.profile.dto.EncodedAvatarCatalog;
 import com.mariuszilinskas.vsp.users.profile.service.AvatarService;
+import com.mariuszilinskas.vsp.users.profile.util.ETagUtils;
+import com.mariuszilinskas.vsp.users.profile.util.HttpUtils;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
-
-import java.util.List;
+import org.springframework.web.context.request.WebRequest;
 
 /**
  * This class provides REST APIs for handling CRUD operations related to avatars.
@@ -23,9 +31,52 @@ public class AvatarController {
 
     private final AvatarService avatarService;
 
+    /**
+     * Writes the whole pre-serialized catalog, gzip-compressed when the client accepts it.
+     * The ETag is derived from the catalog's content, so any instance can answer a conditional request with 304.
+     */
     @GetMapping
-    public ResponseEntity<List<Avatar>> getAvatars() {
-        List<Avatar> response =  avatarService.getAvatars();
+    public ResponseEntity<byte[]> getAvatars(
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            WebRequest webRequest,
+            HttpServletResponse servletResponse
+    ) {
+        boolean gzip = HttpUtils.acceptsGzip(acceptEncoding);
+        servletResponse.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        EncodedAvatarCatalog catalog = avatarService.getEncodedAvatars();
+        // Each content encoding is a different representation, so it needs its own strong ETag
+        String eTag = ETagUtils.toETag(gzip ? "a-" + HttpUtils.GZIP : "a", catalog.digest());
+        if (webRequest.checkNotModified(eTag)) {
+            return null; // 304 Not Modified
+        }
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON);
+        if (gzip) {
+            return response.header(HttpHeaders.CONTENT_ENCODING, HttpUtils.GZIP).body(catalog.gzip());
+        }
+        return response.body(catalog.json());
+    }
+
+    /**
+     * Returns one page of the catalog in avatar name order, starting after the given cursor.
+     * Up to 500 avatars are returned per page.
+     */
+    @GetMapping(params = "limit")
+    public ResponseEntity<AvatarPage> getAvatars(
+            @RequestParam int limit,
+            @RequestParam(required = false) String cursor
+    ) {
+        AvatarPage response = avatarService.getAvatars(cursor, limit);
+        return new ResponseEntity<>(response, HttpStatus.OK);
+    }
+
+    /**
+     * Returns the avatars added and removed since the client's catalog version,
+     * or the whole catalog if the version is missing or too old.
+     */
+    @GetMapping("/changes")
+    public ResponseEntity<AvatarCatalogDelta> getAvatarChanges(@RequestParam(required = false) Long since) {
+        AvatarCatalogDelta response = avatarService.getAvatarChanges(since);
         return new ResponseEntity<>(response, HttpStatus.OK);
     }
 
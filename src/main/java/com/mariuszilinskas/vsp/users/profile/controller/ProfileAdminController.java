@@ -0,0 +1,71 @@
+package com.mariuszilinskas.vsp.users.profile.controller;
+
+import com.mariuszilinskas.vsp.users.profile.service.ProfileExporter;
+import com.mariuszilinskas.vsp.users.profile.util.HttpUtils;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.WebAsyncTask;
+
+import java.io.OutputStream;
+import java.time.Duration;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * This class provides REST APIs for bulk operations on user profiles,
+ * accessible to admins only.
+ *
+ * @author Marius Zilinskas
+ */
+@RestController
+@RequestMapping("/admin/profiles")
+public class ProfileAdminController {
+
+    private final ProfileExporter profileExporter;
+    private final Duration exportTimeout;
+
+    public ProfileAdminController(
+            ProfileExporter profileExporter,
+            @Value("${profile.export.timeout}") Duration exportTimeout
+    ) {
+        this.profileExporter = profileExporter;
+        this.exportTimeout = exportTimeout;
+    }
+
+    /**
+     * Streams every profile as NDJSON, gzip-compressed when the client accepts it.
+     * Compressed output is flushed after every chunk, so the client receives profiles as they are read.
+     * The export runs far longer than any other request, so only this endpoint gets {@code profile.export.timeout}.
+     */
+    @GetMapping("/export")
+    public WebAsyncTask<Void> exportProfiles(
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            HttpServletResponse response
+    ) {
+        boolean gzip = HttpUtils.acceptsGzip(acceptEncoding);
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, HttpUtils.GZIP);
+        }
+
+        return new WebAsyncTask<>(exportTimeout.toMillis(), () -> {
+            OutputStream out = response.getOutputStream();
+            if (gzip) {
+                GZIPOutputStream compressed = new GZIPOutputStream(out, true);
+                profileExporter.export(compressed);
+                compressed.finish();
+            } else {
+                profileExporter.export(out);
+            }
+            out.flush();
+            return null;
+        });
+    }
+
+}
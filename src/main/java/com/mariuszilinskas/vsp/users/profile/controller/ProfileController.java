@@ -1,15 +1,21 @@
 package com.mariuszilinskas.vsp.users.profile.controller;
 
 import com.mariuszilinskas.vsp.users.profile.dto.CreateUserProfileRequest;
-import com.mariuszilinskas.vsp.users.profile.model.Profile;
+import com.mariuszilinskas.vsp.users.profile.dto.EncodedProfiles;
+import com.mariuszilinskas.vsp.users.profile.dto.ProfileResponse;
+import com.mariuszilinskas.vsp.users.profile.dto.ProfilesBatchRequest;
 import com.mariuszilinskas.vsp.users.profile.service.ProfileService;
+import com.mariuszilinskas.vsp.users.profile.util.ETagUtils;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 /**
@@ -25,36 +31,51 @@ public class ProfileController {
     private final ProfileService profileService;
 
     @PostMapping("/{userId}")
-    public ResponseEntity<Profile> createUserProfile(
+    public ResponseEntity<ProfileResponse> createUserProfile(
             @PathVariable UUID userId,
             @Valid @RequestBody CreateUserProfileRequest request
     ) {
-        Profile response = profileService.createUserProfile(userId, request);
+        ProfileResponse response = profileService.createUserProfile(userId, request);
         return new ResponseEntity<>(response, HttpStatus.CREATED);
     }
 
+    /**
+     * Writes the user's cached, already serialized profiles with an ETag derived from their content,
+     * so that any instance can answer a conditional request with 304.
+     */
     @GetMapping("/{userId}")
-    public ResponseEntity<List<Profile>> getAllUserProfiles(@PathVariable UUID userId) {
-        List<Profile> response = profileService.getAllUserProfiles(userId);
+    public ResponseEntity<byte[]> getAllUserProfiles(@PathVariable UUID userId, WebRequest webRequest) {
+        EncodedProfiles profiles = profileService.getEncodedUserProfiles(userId);
+        if (webRequest.checkNotModified(ETagUtils.toETag("p", profiles.digest()))) {
+            return null; // 304 Not Modified
+        }
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(profiles.json());
+    }
+
+    @PostMapping("/batch")
+    public ResponseEntity<Map<UUID, List<ProfileResponse>>> getAllUserProfiles(
+            @Valid @RequestBody ProfilesBatchRequest request
+    ) {
+        Map<UUID, List<ProfileResponse>> response = profileService.getAllUserProfiles(request.userIds());
         return new ResponseEntity<>(response, HttpStatus.OK);
     }
 
     @GetMapping("/{userId}/{profileId}")
-    public ResponseEntity<Profile> getUserProfile(
+    public ResponseEntity<ProfileResponse> getUserProfile(
             @PathVariable UUID userId,
             @PathVariable UUID profileId
     ) {
-        Profile response = profileService.getUserProfile(userId, profileId);
+        ProfileResponse response = profileService.getUserProfile(userId, profileId);
         return new ResponseEntity<>(response, HttpStatus.OK);
     }
 
     @PutMapping("/{userId}/{profileId}")
-    public ResponseEntity<Profile> updateUserProfile(
+    public ResponseEntity<ProfileResponse> updateUserProfile(
             @PathVariable UUID userId,
             @PathVariable UUID profileId,
             @Valid @RequestBody CreateUserProfileRequest request
     ) {
-        Profile response = profileService.updateUserProfile(userId, profileId, request);
+        ProfileResponse response = profileService.updateUserProfile(userId, profileId, request);
         return new ResponseEntity<>(response, HttpStatus.OK);
     }
 
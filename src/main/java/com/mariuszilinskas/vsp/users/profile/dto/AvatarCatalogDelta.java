@@ -0,0 +1,22 @@
+package com.mariuszilinskas.vsp.users.profile.dto;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * The avatars added and removed since a client's catalog version, or the whole catalog when
+ * {@code snapshot} is {@code true}, in which case the client replaces its catalog rather than applying the changes.
+ *
+ * @author Marius Zilinskas
+ */
+public record AvatarCatalogDelta(
+
+        long version,
+
+        boolean snapshot,
+
+        List<AvatarResponse> avatars,
+
+        List<UUID> removedAvatarIds
+
+){}
@@ -0,0 +1,25 @@
+package com.mariuszilinskas.vsp.users.profile.dto;
+
+import java.util.UUID;
+
+/**
+ * One row of the avatar catalog projection: an avatar joined with one of its renditions.
+ * The rendition columns are {@code null} for avatars without renditions. URLs are generated from the object keys.
+ *
+ * @author Marius Zilinskas
+ */
+public record AvatarCatalogRow(
+
+        UUID id,
+
+        String avatarName,
+
+        String objectKey,
+
+        Integer renditionSize,
+
+        String renditionFormat,
+
+        String renditionObjectKey
+
+){}
@@ -0,0 +1,16 @@
+package com.mariuszilinskas.vsp.users.profile.dto;
+
+import java.util.List;
+
+/**
+ * One page of the avatar catalog, with the opaque cursor of the next page, or {@code null} on the last page.
+ *
+ * @author Marius Zilinskas
+ */
+public record AvatarPage(
+
+        List<AvatarResponse> avatars,
+
+        String nextCursor
+
+){}
@@ -0,0 +1,11 @@
+package com.mariuszilinskas.vsp.users.profile.dto;
+
+public record AvatarRenditionResponse(
+
+        int size,
+
+        String format,
+
+        String imageUrl
+
+){}
@@ -0,0 +1,21 @@
+package com.mariuszilinskas.vsp.users.profile.dto;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Public avatar representation, without storage details such as object keys.
+ *
+ * @author Marius Zilinskas
+ */
+public record AvatarResponse(
+
+        UUID id,
+
+        String avatarName,
+
+        String imageUrl,
+
+        List<AvatarRenditionResponse> renditions
+
+){}
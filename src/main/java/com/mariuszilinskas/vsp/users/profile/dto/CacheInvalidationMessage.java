@@ -0,0 +1,22 @@
+package com.mariuszilinskas.vsp.users.profile.dto;
+
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Broadcast to every instance after cached data changes, so that other instances evict it too.
+ * Changes made within one flush interval are coalesced into a single message.
+ *
+ * @author Marius Zilinskas
+ */
+public record CacheInvalidationMessage(
+
+        String origin,
+
+        long publishedAt,
+
+        boolean avatarCatalog,
+
+        Set<UUID> userIds
+
+){}
@@ -0,0 +1,21 @@
+package com.mariuszilinskas.vsp.users.profile.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+
+import java.io.InputStream;
+
+public record CreateAvatarStreamRequest(
+
+        @NotBlank(message = "avatarName cannot be blank")
+        String avatarName,
+
+        @NotBlank(message = "fileName cannot be blank")
+        String fileName,
+
+        String contentType,
+
+        @NotNull(message = "content cannot be null")
+        InputStream content
+
+){}
@@ -0,0 +1,17 @@
+package com.mariuszilinskas.vsp.users.profile.dto;
+
+/**
+ * The avatar catalog serialized to JSON once, both as is and gzip-compressed, ready to be written to responses.
+ * The digest of the JSON is shared by the ETags of both encodings.
+ *
+ * @author Marius Zilinskas
+ */
+public record EncodedAvatarCatalog(
+
+        byte[] json,
+
+        byte[] gzip,
+
+        String digest
+
+){}
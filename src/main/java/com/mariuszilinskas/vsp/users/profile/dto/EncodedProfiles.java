@@ -0,0 +1,14 @@
+package com.mariuszilinskas.vsp.users.profile.dto;
+
+/**
+ * A user's profiles serialized to JSON once, ready to be written to responses, with the digest used for their ETag.
+ *
+ * @author Marius Zilinskas
+ */
+public record EncodedProfiles(
+
+        byte[] json,
+
+        String digest
+
+){}
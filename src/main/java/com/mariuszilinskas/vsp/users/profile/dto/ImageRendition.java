@@ -0,0 +1,18 @@
+package com.mariuszilinskas.vsp.users.profile.dto;
+
+/**
+ * An encoded, pre-sized rendition of an uploaded image, ready to be stored.
+ *
+ * @author Marius Zilinskas
+ */
+public record ImageRendition(
+
+        int size,
+
+        String format,
+
+        String contentType,
+
+        byte[] content
+
+){}
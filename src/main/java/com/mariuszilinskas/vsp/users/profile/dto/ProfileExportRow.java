@@ -0,0 +1,22 @@
+package com.mariuszilinskas.vsp.users.profile.dto;
+
+import java.util.UUID;
+
+/**
+ * One exported profile, written as a line of the admin NDJSON export.
+ *
+ * @author Marius Zilinskas
+ */
+public record ProfileExportRow(
+
+        UUID id,
+
+        UUID userId,
+
+        String profileName,
+
+        boolean isKid,
+
+        UUID avatarId
+
+){}
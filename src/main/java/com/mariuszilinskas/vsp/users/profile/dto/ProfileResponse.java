@@ -0,0 +1,23 @@
+package com.mariuszilinskas.vsp.users.profile.dto;
+
+import java.util.UUID;
+
+/**
+ * Compact profile representation for the profile picker.
+ * The avatar is referenced by ID and image URL only, its renditions are part of the avatar catalog.
+ *
+ * @author Marius Zilinskas
+ */
+public record ProfileResponse(
+
+        UUID id,
+
+        String profileName,
+
+        boolean isKid,
+
+        UUID avatarId,
+
+        String avatarUrl
+
+){}
@@ -0,0 +1,24 @@
+package com.mariuszilinskas.vsp.users.profile.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Users whose profiles are requested in one batch.
+ * The number of user IDs is capped, so that a single request stays within one bounded {@code IN} query.
+ *
+ * @author Marius Zilinskas
+ */
+public record ProfilesBatchRequest(
+
+        @NotEmpty(message = "userIds cannot be empty")
+        @Size(max = ProfilesBatchRequest.MAX_USER_IDS, message = "userIds cannot contain more than {max} IDs")
+        Set<@NotNull(message = "userIds cannot contain null") UUID> userIds
+
+){
+    public static final int MAX_USER_IDS = 1000;
+}
@@ -0,0 +1,14 @@
+package com.mariuszilinskas.vsp.users.profile.dto;
+
+/**
+ * Describes an object streamed to S3, with its size and SHA-256 checksum computed during the upload.
+ *
+ * @author Marius Zilinskas
+ */
+public record S3UploadResult(
+
+        long contentLength,
+
+        String checksum
+
+){}
@@ -0,0 +1,28 @@
+package com.mariuszilinskas.vsp.users.profile.dto;
+
+import java.util.UUID;
+
+/**
+ * A profile projected together with its user ID and its avatar's object key, from which the avatar URL is generated.
+ *
+ * @author Marius Zilinskas
+ */
+public record UserProfileRow(
+
+        UUID userId,
+
+        UUID id,
+
+        String profileName,
+
+        boolean isKid,
+
+        UUID avatarId,
+
+        String avatarObjectKey
+
+){
+    public ProfileResponse toResponse(String avatarUrl) {
+        return new ProfileResponse(id, profileName, isKid, avatarId, avatarUrl);
+    }
+}
@@ -0,0 +1,9 @@
+package com.mariuszilinskas.vsp.users.profile.exception;
+
+public class InvalidCursorException extends RuntimeException {
+
+    public InvalidCursorException(String cursor) {
+        super("Invalid cursor: " + cursor);
+    }
+
+}
@@ -5,6 +5,7 @@ import com.mariuszilinskas.vsp.users.profile.dto.FieldErrorResponse;
 import com.mariuszilinskas.vsp.users.profile.exception.EntityExistsException;
 import com.mariuszilinskas.vsp.users.profile.exception.FileUploadException;
 import com.mariuszilinskas.vsp.users.profile.exception.IncorrectFileException;
+import com.mariuszilinskas.vsp.users.profile.exception.InvalidCursorException;
 import com.mariuszilinskas.vsp.users.profile.exception.ResourceNotFoundException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -71,6 +72,11 @@ public class AppExceptionHandler {
         return buildErrorResponse(ex.getMessage(), HttpStatus.BAD_REQUEST);
     }
 
+    @ExceptionHandler(InvalidCursorException.class)
+    public ResponseEntity<ErrorResponse> handleInvalidCursorException(InvalidCursorException ex) {
+        return buildErrorResponse(ex.getMessage(), HttpStatus.BAD_REQUEST);
+    }
+
     // -----------------------------------------------------------
 
     /**
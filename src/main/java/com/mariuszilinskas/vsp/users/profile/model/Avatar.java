@@ -3,18 +3,24 @@ package com.mariuszilinskas.vsp.users.profile.model;
 import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.Fetch;
+import org.hibernate.annotations.FetchMode;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
 
 @Entity
 @Getter
 @Setter
-@Table(name = "avatars")
+@Table(name = "avatars", indexes = @Index(name = "idx_avatars_object_key", columnList = "object_key"))
 /**
  * This entity represents avatars within the platform.
  * Avatars are created by the system administrators and can be assigned
  * to user profiles either by default or through user selection.
- * Each avatar has a name, and an associated image link.
+ * Each avatar has a name, an associated image object and pre-sized renditions of the image.
+ * Image objects are keyed by their content hash, so several avatars may share the same object.
+ * Image URLs are not stored, they are generated from the object keys when read.
  *
  * @author Marius Zilinskas
  */
@@ -31,7 +37,9 @@ public class Avatar {
     @Column(name = "object_key", nullable = false)
     private String objectKey;
 
-    @Column(name = "image_url", nullable = false)
-    private String imageUrl;
+    @ElementCollection(fetch = FetchType.EAGER)
+    @Fetch(FetchMode.SUBSELECT)
+    @CollectionTable(name = "avatar_renditions", joinColumns = @JoinColumn(name = "avatar_id"))
+    private List<AvatarRendition> renditions = new ArrayList<>();
 
 }
@@ -0,0 +1,46 @@
+package com.mariuszilinskas.vsp.users.profile.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * This entity records an avatar added to or removed from the catalog.
+ * Its version is assigned by the database in increasing order, and changes are serialized so that versions also
+ * commit in that order. The latest version is the catalog version that clients pass back to fetch only
+ * the changes made since.
+ *
+ * @author Marius Zilinskas
+ */
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@Table(name = "avatar_catalog_changes")
+public class AvatarCatalogChange {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(updatable = false, nullable = false)
+    private Long version;
+
+    @Column(name = "avatar_id", nullable = false, updatable = false)
+    private UUID avatarId;
+
+    @Column(name = "removed", nullable = false, updatable = false)
+    private boolean removed;
+
+    @Column(name = "changed_at", nullable = false, updatable = false)
+    private Instant changedAt;
+
+    public AvatarCatalogChange(UUID avatarId, boolean removed, Instant changedAt) {
+        this.avatarId = avatarId;
+        this.removed = removed;
+        this.changedAt = changedAt;
+    }
+
+}
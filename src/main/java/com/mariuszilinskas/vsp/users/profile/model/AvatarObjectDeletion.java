@@ -0,0 +1,56 @@
+package com.mariuszilinskas.vsp.users.profile.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * This entity describes an S3 object of a deleted avatar that is waiting to be deleted.
+ * It is recorded in the same transaction as the avatar deletion and removed once the object is deleted,
+ * so failed deletions are retried rather than leaving orphaned objects behind.
+ *
+ * @author Marius Zilinskas
+ */
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@Table(name = "avatar_object_deletions",
+        indexes = @Index(name = "idx_avatar_object_deletions_next_attempt_at", columnList = "next_attempt_at"))
+public class AvatarObjectDeletion {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    @Column(updatable = false, nullable = false)
+    private UUID id;
+
+    @Column(name = "object_key", nullable = false)
+    private String objectKey;
+
+    /**
+     * The object key of the avatar's original image, shared by all of its renditions.
+     */
+    @Column(name = "source_object_key", nullable = false)
+    private String sourceObjectKey;
+
+    @Column(name = "attempts", nullable = false)
+    private int attempts;
+
+    @Column(name = "next_attempt_at", nullable = false)
+    private Instant nextAttemptAt;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private Instant createdAt;
+
+    public AvatarObjectDeletion(String objectKey, String sourceObjectKey, Instant createdAt) {
+        this.objectKey = objectKey;
+        this.sourceObjectKey = sourceObjectKey;
+        this.nextAttemptAt = createdAt;
+        this.createdAt = createdAt;
+    }
+
+}
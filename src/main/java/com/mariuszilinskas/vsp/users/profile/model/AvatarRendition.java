@@ -0,0 +1,32 @@
+package com.mariuszilinskas.vsp.users.profile.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * This class describes a pre-sized rendition of an avatar image,
+ * so that clients can download the size and format they need instead of the original.
+ *
+ * @author Marius Zilinskas
+ */
+@Embeddable
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class AvatarRendition {
+
+    @Column(name = "pixel_size", nullable = false)
+    private int size;
+
+    @Column(name = "format", nullable = false)
+    private String format;
+
+    @Column(name = "object_key", nullable = false)
+    private String objectKey;
+
+}
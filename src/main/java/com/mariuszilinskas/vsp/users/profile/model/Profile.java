@@ -9,15 +9,20 @@ import java.util.UUID;
 /**
  * This entity describes a user profile within the platform.
  * Profiles are automatically removed when the associated user account is deleted.
+ * Profile names are unique per user, enforced by a unique constraint, and avatars by a foreign key.
  *
  * @author Marius Zilinskas
  */
 @Entity
 @Getter
 @Setter
-@Table(name = "profiles")
+@Table(name = "profiles", uniqueConstraints = @UniqueConstraint(
+        name = Profile.UNIQUE_NAME_CONSTRAINT, columnNames = {"user_id", "profile_name"}))
 public class Profile {
 
+    public static final String UNIQUE_NAME_CONSTRAINT = "uk_profiles_user_id_profile_name";
+    public static final String AVATAR_FOREIGN_KEY = "fk_profiles_avatar";
+
     @Id
     @GeneratedValue(strategy = GenerationType.UUID)
     @Column(updatable = false, nullable = false)
@@ -29,8 +34,8 @@ public class Profile {
     @Column(name = "profile_name", nullable = false)
     private String profileName;
 
-    @ManyToOne
-    @JoinColumn(name = "avatar_id")
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "avatar_id", foreignKey = @ForeignKey(name = Profile.AVATAR_FOREIGN_KEY))
     private Avatar avatar;
 
     @Column(name = "is_kid")
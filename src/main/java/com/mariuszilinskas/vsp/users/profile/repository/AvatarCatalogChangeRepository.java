@@ -0,0 +1,43 @@
+package com.mariuszilinskas.vsp.users.profile.repository;
+
+import com.mariuszilinskas.vsp.users.profile.model.AvatarCatalogChange;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Repository interface for the avatar catalog change log.
+ *
+ * @author Marius Zilinskas
+ */
+@Repository
+public interface AvatarCatalogChangeRepository extends JpaRepository<AvatarCatalogChange, Long> {
+
+    @Query("SELECT MIN(c.version) FROM AvatarCatalogChange c")
+    Optional<Long> findEarliestVersion();
+
+    @Query("SELECT MAX(c.version) FROM AvatarCatalogChange c")
+    Optional<Long> findLatestVersion();
+
+    List<AvatarCatalogChange> findByVersionGreaterThanOrderByVersion(long version, Limit limit);
+
+    /**
+     * Deletes changes made before the cutoff, always keeping the latest one so that the catalog version is kept.
+     *
+     * @return the number of deleted changes
+     */
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM AvatarCatalogChange c WHERE c.changedAt < :cutoff " +
+            "AND c.version < (SELECT MAX(l.version) FROM AvatarCatalogChange l)")
+    int deleteChangesBefore(@Param("cutoff") Instant cutoff);
+
+}
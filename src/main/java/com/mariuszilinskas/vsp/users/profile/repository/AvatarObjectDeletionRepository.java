@@ -0,0 +1,22 @@
+package com.mariuszilinskas.vsp.users.profile.repository;
+
+import com.mariuszilinskas.vsp.users.profile.model.AvatarObjectDeletion;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Repository interface for the S3 objects of deleted avatars that are waiting to be deleted.
+ *
+ * @author Marius Zilinskas
+ */
+@Repository
+public interface AvatarObjectDeletionRepository extends JpaRepository<AvatarObjectDeletion, UUID> {
+
+    List<AvatarObjectDeletion> findByNextAttemptAtLessThanEqualOrderByNextAttemptAt(Instant now, Limit limit);
+
+}
@@ -1,9 +1,18 @@
 package com.mariuszilinskas.vsp.users.profile.repository;
 
+import com.mariuszilinskas.vsp.users.profile.dto.AvatarCatalogRow;
 import com.mariuszilinskas.vsp.users.profile.model.Avatar;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 
 /**
@@ -16,4 +25,58 @@ public interface AvatarRepository extends JpaRepository<Avatar, UUID> {
 
     boolean existsByAvatarName(String avatarName);
 
+    Optional<Avatar> findFirstByObjectKey(String objectKey);
+
+    long countByObjectKey(String objectKey);
+
+    @Query("SELECT DISTINCT a.objectKey FROM Avatar a WHERE a.objectKey IN :objectKeys")
+    Set<String> findObjectKeysIn(@Param("objectKeys") Collection<String> objectKeys);
+
+    @Query("SELECT a.objectKey FROM Avatar a WHERE a.id = :avatarId")
+    Optional<String> findObjectKeyById(@Param("avatarId") UUID avatarId);
+
+    /**
+     * Locks the catalog until the current transaction ends, so that catalog writes run one at a time.
+     * Change versions are identity values, assigned on insert but visible on commit, so without the lock
+     * a reader could see a version before a lower one commits and skip it.
+     */
+    @Query(value = "SELECT id FROM avatar_catalog_lock WHERE id = 1 FOR UPDATE", nativeQuery = true)
+    int lockCatalog();
+
+    @Query("SELECT a.id FROM Avatar a")
+    List<UUID> findAllIds();
+
+    @Query("SELECT a.avatarName FROM Avatar a ORDER BY a.avatarName")
+    List<String> findNames(Limit limit);
+
+    @Query("SELECT a.avatarName FROM Avatar a WHERE a.avatarName > :avatarName ORDER BY a.avatarName")
+    List<String> findNamesAfter(@Param("avatarName") String avatarName, Limit limit);
+
+    /**
+     * Reads the whole catalog as flat rows in a single query, without loading any entities.
+     */
+    @Transactional(readOnly = true)
+    @Query("SELECT new com.mariuszilinskas.vsp.users.profile.dto.AvatarCatalogRow(" +
+            "a.id, a.avatarName, a.objectKey, r.size, r.format, r.objectKey) " +
+            "FROM Avatar a LEFT JOIN a.renditions r ORDER BY a.avatarName, r.size, r.format")
+    List<AvatarCatalogRow> findCatalog();
+
+    /**
+     * Reads the given avatars as flat catalog rows in a single query, without loading any entities.
+     */
+    @Transactional(readOnly = true)
+    @Query("SELECT new com.mariuszilinskas.vsp.users.profile.dto.AvatarCatalogRow(" +
+            "a.id, a.avatarName, a.objectKey, r.size, r.format, r.objectKey) " +
+            "FROM Avatar a LEFT JOIN a.renditions r WHERE a.id IN :avatarIds ORDER BY a.avatarName, r.size, r.format")
+    List<AvatarCatalogRow> findCatalogByIdIn(@Param("avatarIds") Collection<UUID> avatarIds);
+
+    /**
+     * Reads the avatars with the given names as flat catalog rows in a single query, without loading any entities.
+     */
+    @Transactional(readOnly = true)
+    @Query("SELECT new com.mariuszilinskas.vsp.users.profile.dto.AvatarCatalogRow(" +
+            "a.id, a.avatarName, a.objectKey, r.size, r.format, r.objectKey) " +
+            "FROM Avatar a LEFT JOIN a.renditions r WHERE a.avatarName IN :avatarNames ORDER BY a.avatarName, r.size, r.format")
+    List<AvatarCatalogRow> findCatalogByAvatarNameIn(@Param("avatarNames") Collection<String> avatarNames);
+
 }
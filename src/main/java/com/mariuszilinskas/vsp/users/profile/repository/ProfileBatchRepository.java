@@ -0,0 +1,21 @@
+package com.mariuszilinskas.vsp.users.profile.repository;
+
+import com.mariuszilinskas.vsp.users.profile.model.Profile;
+
+import java.util.List;
+
+/**
+ * Custom repository fragment for bulk operations on User Profile entities
+ * that bypass the persistence context.
+ *
+ * @author Marius Zilinskas
+ */
+public interface ProfileBatchRepository {
+
+    /**
+     * Inserts all given profiles in a single JDBC batch.
+     * Profiles must already have their IDs assigned.
+     */
+    void insertAll(List<Profile> profiles);
+
+}
@@ -0,0 +1,43 @@
+package com.mariuszilinskas.vsp.users.profile.repository;
+
+import com.mariuszilinskas.vsp.users.profile.model.Profile;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Types;
+import java.util.List;
+
+/**
+ * JDBC implementation of {@link ProfileBatchRepository}.
+ *
+ * @author Marius Zilinskas
+ */
+@RequiredArgsConstructor
+public class ProfileBatchRepositoryImpl implements ProfileBatchRepository {
+
+    private static final String INSERT_PROFILE_SQL =
+            "INSERT INTO profiles (id, user_id, profile_name, avatar_id, is_kid) VALUES (?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    @Transactional
+    public void insertAll(List<Profile> profiles) {
+        if (profiles.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT_PROFILE_SQL, profiles, profiles.size(), (ps, profile) -> {
+            ps.setObject(1, profile.getId());
+            ps.setObject(2, profile.getUserId());
+            ps.setString(3, profile.getProfileName());
+            if (profile.getAvatar() != null) {
+                ps.setObject(4, profile.getAvatar().getId());
+            } else {
+                ps.setNull(4, Types.OTHER);
+            }
+            ps.setBoolean(5, profile.isKid());
+        });
+    }
+
+}
@@ -1,29 +1,100 @@
 package com.mariuszilinskas.vsp.users.profile.repository;
 
+import com.mariuszilinskas.vsp.users.profile.dto.ProfileExportRow;
+import com.mariuszilinskas.vsp.users.profile.dto.UserProfileRow;
+import com.mariuszilinskas.vsp.users.profile.model.Avatar;
 import com.mariuszilinskas.vsp.users.profile.model.Profile;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
-import java.util.Optional;
 import java.util.UUID;
 
 /**
  * Repository interface for managing User Profile entities. Supports standard CRUD operations.
+ * Profiles are read as projections and written with single statements, without loading entities.
  *
  * @author Marius Zilinskas
  */
 @Repository
-public interface ProfileRepository extends JpaRepository<Profile, UUID> {
+public interface ProfileRepository extends JpaRepository<Profile, UUID>, ProfileBatchRepository {
 
-    boolean existsByUserIdAndProfileName(UUID userId, String profileName);
+    /**
+     * Reads the user's profiles as rows in profile name order, without loading any entities.
+     * The order is fixed so that every instance serializes, and so tags, the same profile set identically.
+     */
+    @Transactional(readOnly = true)
+    @Query("SELECT new com.mariuszilinskas.vsp.users.profile.dto.UserProfileRow(" +
+            "p.userId, p.id, p.profileName, p.isKid, a.id, a.objectKey) " +
+            "FROM Profile p LEFT JOIN p.avatar a WHERE p.userId = :userId ORDER BY p.profileName")
+    List<UserProfileRow> findRowsByUserId(@Param("userId") UUID userId);
 
-    boolean existsByUserIdAndProfileNameAndIdNot(UUID userId, String profileName, UUID id);
+    /**
+     * Reads the profiles of many users in a single query, in profile name order per user, without loading any entities.
+     */
+    @Transactional(readOnly = true)
+    @Query("SELECT new com.mariuszilinskas.vsp.users.profile.dto.UserProfileRow(" +
+            "p.userId, p.id, p.profileName, p.isKid, a.id, a.objectKey) " +
+            "FROM Profile p LEFT JOIN p.avatar a WHERE p.userId IN :userIds ORDER BY p.userId, p.profileName")
+    List<UserProfileRow> findRowsByUserIdIn(@Param("userIds") Collection<UUID> userIds);
 
-    List<Profile> findAllByUserId(UUID userId);
+    /**
+     * Reads the first chunk of all profiles in ID order, without loading any entities.
+     */
+    @Transactional(readOnly = true)
+    @Query("SELECT new com.mariuszilinskas.vsp.users.profile.dto.ProfileExportRow(" +
+            "p.id, p.userId, p.profileName, p.isKid, p.avatar.id) FROM Profile p ORDER BY p.id")
+    List<ProfileExportRow> findExportRows(Limit limit);
 
-    Optional<Profile> findByIdAndUserId(UUID profileId, UUID userId);
+    /**
+     * Reads the chunk of profiles following the given profile ID in ID order, without loading any entities.
+     */
+    @Transactional(readOnly = true)
+    @Query("SELECT new com.mariuszilinskas.vsp.users.profile.dto.ProfileExportRow(" +
+            "p.id, p.userId, p.profileName, p.isKid, p.avatar.id) FROM Profile p WHERE p.id > :profileId ORDER BY p.id")
+    List<ProfileExportRow> findExportRowsAfter(@Param("profileId") UUID profileId, Limit limit);
 
-    void deleteAllByUserId(UUID userId);
+    /**
+     * Updates a profile in a single statement, without loading it first.
+     *
+     * @return the number of updated profiles, 0 if the user has no such profile
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE Profile p SET p.profileName = :profileName, p.avatar = :avatar, p.isKid = :isKid " +
+            "WHERE p.id = :profileId AND p.userId = :userId")
+    int updateProfile(
+            @Param("profileId") UUID profileId,
+            @Param("userId") UUID userId,
+            @Param("profileName") String profileName,
+            @Param("avatar") Avatar avatar,
+            @Param("isKid") boolean isKid
+    );
+
+    /**
+     * Deletes a profile in a single statement, without loading it first.
+     *
+     * @return the number of deleted profiles, 0 if the user has no such profile
+     */
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM Profile p WHERE p.id = :profileId AND p.userId = :userId")
+    int deleteProfile(@Param("profileId") UUID profileId, @Param("userId") UUID userId);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM Profile p WHERE p.userId = :userId")
+    int deleteAllByUserId(@Param("userId") UUID userId);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM Profile p WHERE p.userId IN :userIds")
+    int deleteAllByUserIdIn(@Param("userIds") Collection<UUID> userIds);
 
 }
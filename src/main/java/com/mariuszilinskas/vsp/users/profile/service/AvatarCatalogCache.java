@@ -0,0 +1,238 @@
+package com.mariuszilinskas.vsp.users.profile.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.mariuszilinskas.vsp.users.profile.dto.AvatarCatalogRow;
+import com.mariuszilinskas.vsp.users.profile.dto.AvatarRenditionResponse;
+import com.mariuszilinskas.vsp.users.profile.dto.AvatarResponse;
+import com.mariuszilinskas.vsp.users.profile.dto.EncodedAvatarCatalog;
+import com.mariuszilinskas.vsp.users.profile.repository.AvatarRepository;
+import com.mariuszilinskas.vsp.users.profile.util.ETagUtils;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Read-through cache of the admin-curated avatar catalog.
+ * Holds a bounded cache of avatar object keys by ID, an immutable snapshot of the whole catalog
+ * as responses, the same snapshot encoded as JSON and gzip, and the ID index used for random avatar selection.
+ * No entities are cached, as they would be shared by every request and detached from each request's session.
+ * Everything is dropped on {@link #invalidate()}.
+ *
+ * @author Marius Zilinskas
+ */
+@Component
+public class AvatarCatalogCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(AvatarCatalogCache.class);
+    private static final String CACHE_NAME = "avatars";
+
+    private final AvatarRepository avatarRepository;
+    private final ObjectMapper objectMapper;
+    private final ObjectUrlStrategy objectUrlStrategy;
+    private final Cache<UUID, String> objectKeysById;
+    private final Duration expireAfterWrite;
+    private final AtomicLong version = new AtomicLong();
+
+    private volatile Snapshot<List<AvatarResponse>> avatars;
+    private volatile Snapshot<EncodedAvatarCatalog> encodedAvatars;
+    private volatile Snapshot<List<UUID>> avatarIds;
+
+    private final Counter snapshotHits;
+    private final Counter snapshotMisses;
+    private final Timer snapshotLoadTimer;
+
+    public AvatarCatalogCache(
+            AvatarRepository avatarRepository,
+            MeterRegistry meterRegistry,
+            ObjectMapper objectMapper,
+            ObjectUrlStrategy objectUrlStrategy,
+            @Value("${avatar.cache.maximum-size}") long maximumSize,
+            @Value("${avatar.cache.expire-after-write}") Duration expireAfterWrite
+    ) {
+        this.avatarRepository = avatarRepository;
+        this.objectMapper = objectMapper;
+        this.objectUrlStrategy = objectUrlStrategy;
+        this.expireAfterWrite = expireAfterWrite;
+        this.objectKeysById = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, objectKeysById, CACHE_NAME);
+        this.snapshotHits = Counter.builder("avatar.catalog.snapshot.gets")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.snapshotMisses = Counter.builder("avatar.catalog.snapshot.gets")
+                .tag("result", "miss")
+                .register(meterRegistry);
+        this.snapshotLoadTimer = Timer.builder("avatar.catalog.snapshot.load")
+                .description("Time taken to load the avatar catalog from the database")
+                .register(meterRegistry);
+        Gauge.builder("avatar.catalog.snapshot.size", this, AvatarCatalogCache::snapshotSize)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Returns an immutable snapshot of all avatars, projected from the database when missing or expired.
+     */
+    public List<AvatarResponse> getAvatars() {
+        return getAvatarsSnapshot().value();
+    }
+
+    private Snapshot<List<AvatarResponse>> getAvatarsSnapshot() {
+        Snapshot<List<AvatarResponse>> snapshot = avatars;
+        if (isFresh(snapshot)) {
+            snapshotHits.increment();
+            return snapshot;
+        }
+        snapshotMisses.increment();
+        long loadVersion = version.get();
+        List<AvatarResponse> loaded = snapshotLoadTimer.record(
+                () -> toResponses(avatarRepository.findCatalog(), objectUrlStrategy));
+        Snapshot<List<AvatarResponse>> loadedSnapshot = new Snapshot<>(loaded, System.nanoTime());
+        avatars = loadedSnapshot;
+        if (version.get() != loadVersion) {
+            // The catalog changed while loading, don't keep a stale snapshot
+            avatars = null;
+        }
+        return loadedSnapshot;
+    }
+
+    /**
+     * Returns the catalog snapshot serialized to JSON and gzip, encoded once per snapshot
+     * so that serving the catalog costs no per-request serialization or compression.
+     * The encoding expires together with the snapshot it was built from.
+     */
+    public EncodedAvatarCatalog getEncodedAvatars() {
+        Snapshot<EncodedAvatarCatalog> snapshot = encodedAvatars;
+        if (isFresh(snapshot)) {
+            return snapshot.value();
+        }
+        long loadVersion = version.get();
+        Snapshot<List<AvatarResponse>> source = getAvatarsSnapshot();
+        EncodedAvatarCatalog encoded = encode(source.value());
+        encodedAvatars = new Snapshot<>(encoded, source.loadedAt());
+        if (version.get() != loadVersion) {
+            // The catalog changed while encoding, don't keep a stale encoding
+            encodedAvatars = null;
+        }
+        return encoded;
+    }
+
+    private EncodedAvatarCatalog encode(List<AvatarResponse> avatars) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(avatars);
+            ByteArrayOutputStream gzip = new ByteArrayOutputStream();
+            // Compressed once per catalog version, so spend the extra CPU on the smallest output
+            try (GZIPOutputStream out = new GZIPOutputStream(gzip) {{ def.setLevel(Deflater.BEST_COMPRESSION); }}) {
+                out.write(json);
+            }
+            return new EncodedAvatarCatalog(json, gzip.toByteArray(), ETagUtils.digest(json));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to encode the avatar catalog", e);
+        }
+    }
+
+    /**
+     * Groups the flat catalog rows, which are ordered by avatar, into one response per avatar,
+     * generating the image URLs from the object keys.
+     */
+    static List<AvatarResponse> toResponses(List<AvatarCatalogRow> rows, ObjectUrlStrategy objectUrlStrategy) {
+        Map<UUID, List<AvatarRenditionResponse>> renditions = new LinkedHashMap<>();
+        Map<UUID, AvatarCatalogRow> avatarRows = new LinkedHashMap<>();
+        for (AvatarCatalogRow row : rows) {
+            avatarRows.putIfAbsent(row.id(), row);
+            List<AvatarRenditionResponse> avatarRenditions = renditions.computeIfAbsent(row.id(), id -> new ArrayList<>());
+            if (row.renditionSize() != null) {
+                avatarRenditions.add(new AvatarRenditionResponse(
+                        row.renditionSize(), row.renditionFormat(), objectUrlStrategy.getUrl(row.renditionObjectKey())));
+            }
+        }
+        return avatarRows.values().stream()
+                .map(row -> new AvatarResponse(row.id(), row.avatarName(), objectUrlStrategy.getUrl(row.objectKey()),
+                        List.copyOf(renditions.get(row.id()))))
+                .toList();
+    }
+
+    /**
+     * Returns the object key of the avatar with the given ID, reading only that column on a cache miss.
+     * The load runs outside the cache's compute lock, so it never pins a virtual thread's carrier.
+     */
+    public Optional<String> findObjectKey(UUID avatarId) {
+        String objectKey = objectKeysById.getIfPresent(avatarId);
+        if (objectKey != null) {
+            return Optional.of(objectKey);
+        }
+        long loadVersion = version.get();
+        Optional<String> loaded = avatarRepository.findObjectKeyById(avatarId);
+        if (loaded.isPresent() && version.get() == loadVersion) {
+            objectKeysById.put(avatarId, loaded.get());
+        }
+        return loaded;
+    }
+
+    /**
+     * Returns an immutable index of all avatar IDs, loading only the IDs when missing or expired.
+     */
+    public List<UUID> getAvatarIds() {
+        Snapshot<List<UUID>> snapshot = avatarIds;
+        if (isFresh(snapshot)) {
+            return snapshot.value();
+        }
+        long loadVersion = version.get();
+        List<UUID> loaded = List.copyOf(avatarRepository.findAllIds());
+        avatarIds = new Snapshot<>(loaded, System.nanoTime());
+        if (version.get() != loadVersion) {
+            // The catalog changed while loading, don't keep a stale index
+            avatarIds = null;
+        }
+        return loaded;
+    }
+
+    /**
+     * Drops every cached object key, the catalog snapshot, its encoding and the ID index.
+     */
+    public void invalidate() {
+        logger.debug("Invalidating Avatar catalog cache");
+        version.incrementAndGet();
+        avatars = null;
+        encodedAvatars = null;
+        avatarIds = null;
+        objectKeysById.invalidateAll();
+    }
+
+    private boolean isFresh(Snapshot<?> snapshot) {
+        return snapshot != null && System.nanoTime() - snapshot.loadedAt() < expireAfterWrite.toNanos();
+    }
+
+    private int snapshotSize() {
+        Snapshot<List<AvatarResponse>> snapshot = avatars;
+        return snapshot == null ? 0 : snapshot.value().size();
+    }
+
+    private record Snapshot<T>(T value, long loadedAt) {}
+
+}
@@ -0,0 +1,136 @@
+package com.mariuszilinskas.vsp.users.profile.service;
+
+import com.mariuszilinskas.vsp.users.profile.dto.AvatarCatalogDelta;
+import com.mariuszilinskas.vsp.users.profile.dto.AvatarResponse;
+import com.mariuszilinskas.vsp.users.profile.model.AvatarCatalogChange;
+import com.mariuszilinskas.vsp.users.profile.repository.AvatarCatalogChangeRepository;
+import com.mariuszilinskas.vsp.users.profile.repository.AvatarRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Log of avatars added to and removed from the catalog, used to send clients only the changes since their version.
+ * Clients that are too far behind, either because the changes they missed have been pruned or because there are
+ * more of them than {@code avatar.changes.max-changes}, get the whole catalog instead.
+ *
+ * @author Marius Zilinskas
+ */
+@Component
+public class AvatarCatalogChangeLog {
+
+    private static final Logger logger = LoggerFactory.getLogger(AvatarCatalogChangeLog.class);
+
+    private final AvatarCatalogChangeRepository changeRepository;
+    private final AvatarRepository avatarRepository;
+    private final ObjectUrlStrategy objectUrlStrategy;
+    private final int maxChanges;
+    private final Duration retention;
+
+    private final Counter deltaCounter;
+    private final Counter snapshotCounter;
+
+    public AvatarCatalogChangeLog(
+            AvatarCatalogChangeRepository changeRepository,
+            AvatarRepository avatarRepository,
+            ObjectUrlStrategy objectUrlStrategy,
+            MeterRegistry meterRegistry,
+            @Value("${avatar.changes.max-changes}") int maxChanges,
+            @Value("${avatar.changes.retention}") Duration retention
+    ) {
+        this.changeRepository = changeRepository;
+        this.avatarRepository = avatarRepository;
+        this.objectUrlStrategy = objectUrlStrategy;
+        this.maxChanges = maxChanges;
+        this.retention = retention;
+        this.deltaCounter = meterRegistry.counter("avatar.catalog.changes", "result", "delta");
+        this.snapshotCounter = meterRegistry.counter("avatar.catalog.changes", "result", "snapshot");
+    }
+
+    @Transactional
+    public void recordAdded(UUID avatarId) {
+        record(avatarId, false);
+    }
+
+    @Transactional
+    public void recordRemoved(UUID avatarId) {
+        record(avatarId, true);
+    }
+
+    /**
+     * Serializes catalog changes, so that each change's version is assigned and committed
+     * before the next change gets its version, and versions become visible in increasing order.
+     */
+    private void record(UUID avatarId, boolean removed) {
+        avatarRepository.lockCatalog();
+        changeRepository.save(new AvatarCatalogChange(avatarId, removed, Instant.now()));
+    }
+
+    /**
+     * Returns the avatars added and removed after the given version, or the whole catalog if the version is
+     * {@code null}, too old or unknown. Avatars changed several times are only returned once, in their current state.
+     */
+    public AvatarCatalogDelta getChangesSince(Long sinceVersion) {
+        Optional<Long> earliestVersion = changeRepository.findEarliestVersion();
+        if (sinceVersion == null || (earliestVersion.isPresent() && sinceVersion < earliestVersion.get())) {
+            return getSnapshot();
+        }
+
+        List<AvatarCatalogChange> changes =
+                changeRepository.findByVersionGreaterThanOrderByVersion(sinceVersion, Limit.of(maxChanges + 1));
+        if (changes.size() > maxChanges) {
+            return getSnapshot();
+        }
+        if (changes.isEmpty()) {
+            long latestVersion = changeRepository.findLatestVersion().orElse(0L);
+            // A version ahead of the log was not issued by this catalog
+            return sinceVersion > latestVersion ? getSnapshot() : delta(latestVersion, List.of(), List.of());
+        }
+
+        Set<UUID> changedIds = new LinkedHashSet<>();
+        changes.forEach(change -> changedIds.add(change.getAvatarId()));
+        List<AvatarResponse> avatars = AvatarCatalogCache.toResponses(
+                avatarRepository.findCatalogByIdIn(changedIds), objectUrlStrategy);
+        avatars.forEach(avatar -> changedIds.remove(avatar.id()));
+        // What is left has been removed, whatever the order of its changes
+        return delta(changes.getLast().getVersion(), avatars, List.copyOf(changedIds));
+    }
+
+    private AvatarCatalogDelta delta(long version, List<AvatarResponse> avatars, List<UUID> removedAvatarIds) {
+        deltaCounter.increment();
+        return new AvatarCatalogDelta(version, false, avatars, removedAvatarIds);
+    }
+
+    /**
+     * Reads the version before the catalog, so that changes made in between are sent again rather than missed.
+     */
+    private AvatarCatalogDelta getSnapshot() {
+        snapshotCounter.increment();
+        long version = changeRepository.findLatestVersion().orElse(0L);
+        List<AvatarResponse> avatars = AvatarCatalogCache.toResponses(avatarRepository.findCatalog(), objectUrlStrategy);
+        return new AvatarCatalogDelta(version, true, avatars, List.of());
+    }
+
+    @Scheduled(fixedDelayString = "${avatar.changes.prune-interval}")
+    public void prune() {
+        int pruned = changeRepository.deleteChangesBefore(Instant.now().minus(retention));
+        if (pruned > 0) {
+            logger.info("Pruned {} Avatar catalog changes older than {}", pruned, retention);
+        }
+    }
+
+}
@@ -0,0 +1,194 @@
+package com.mariuszilinskas.vsp.users.profile.service;
+
+import com.mariuszilinskas.vsp.users.profile.model.Avatar;
+import com.mariuszilinskas.vsp.users.profile.model.AvatarObjectDeletion;
+import com.mariuszilinskas.vsp.users.profile.repository.AvatarObjectDeletionRepository;
+import com.mariuszilinskas.vsp.users.profile.repository.AvatarRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Deletes the S3 objects of deleted avatars in the background.
+ * Deleting an avatar only records its object keys, in the same transaction, so the request never waits for S3
+ * and no object is orphaned if S3 or the instance fails. The reaper deletes due keys with S3 multi-object deletes
+ * and reschedules failed keys with exponential backoff.
+ * As objects are content addressed, keys whose image has been uploaded again since are dropped instead of deleted.
+ * Each batch is checked and deleted under the catalog lock, which avatar creation also holds while it uploads
+ * and saves, so an image cannot be uploaded again for a new avatar between the check and the deletion.
+ * The lock also keeps reapers on several instances from picking the same keys.
+ *
+ * @author Marius Zilinskas
+ */
+@Component
+public class AvatarObjectReaper {
+
+    private static final Logger logger = LoggerFactory.getLogger(AvatarObjectReaper.class);
+
+    private final AvatarObjectDeletionRepository deletionRepository;
+    private final AvatarRepository avatarRepository;
+    private final S3Service s3Service;
+    private final TransactionTemplate transactionTemplate;
+    private final String bucketName;
+    private final int batchSize;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+
+    private final AtomicLong backlog = new AtomicLong();
+    private final Counter deletedCounter;
+    private final Counter failedCounter;
+    private final Counter skippedCounter;
+
+    public AvatarObjectReaper(
+            AvatarObjectDeletionRepository deletionRepository,
+            AvatarRepository avatarRepository,
+            S3Service s3Service,
+            TransactionTemplate transactionTemplate,
+            MeterRegistry meterRegistry,
+            @Value("${aws.s3.avatarBucketName}") String bucketName,
+            @Value("${avatar.deletion.batch-size}") int batchSize,
+            @Value("${avatar.deletion.initial-backoff}") Duration initialBackoff,
+            @Value("${avatar.deletion.max-backoff}") Duration maxBackoff
+    ) {
+        this.deletionRepository = deletionRepository;
+        this.avatarRepository = avatarRepository;
+        this.s3Service = s3Service;
+        this.transactionTemplate = transactionTemplate;
+        this.bucketName = bucketName;
+        this.batchSize = batchSize;
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+
+        Gauge.builder("avatar.deletion.backlog", backlog, AtomicLong::get)
+                .description("S3 objects of deleted avatars waiting to be deleted")
+                .register(meterRegistry);
+        this.deletedCounter = meterRegistry.counter("avatar.deletion.objects", "result", "deleted");
+        this.failedCounter = meterRegistry.counter("avatar.deletion.objects", "result", "failed");
+        this.skippedCounter = meterRegistry.counter("avatar.deletion.objects", "result", "skipped");
+    }
+
+    /**
+     * Records the image and rendition objects of an avatar for deletion, in the caller's transaction.
+     */
+    public void scheduleDeletion(Avatar avatar) {
+        Instant now = Instant.now();
+        List<AvatarObjectDeletion> deletions = new ArrayList<>();
+        deletions.add(new AvatarObjectDeletion(avatar.getObjectKey(), avatar.getObjectKey(), now));
+        avatar.getRenditions().forEach(rendition ->
+                deletions.add(new AvatarObjectDeletion(rendition.getObjectKey(), avatar.getObjectKey(), now)));
+        deletionRepository.saveAll(deletions);
+        backlog.addAndGet(deletions.size());
+    }
+
+    /**
+     * Records a single object for deletion, e.g. a staged upload that could not be deleted right away.
+     */
+    public void scheduleDeletion(String objectKey) {
+        deletionRepository.save(new AvatarObjectDeletion(objectKey, objectKey, Instant.now()));
+        backlog.incrementAndGet();
+    }
+
+    /**
+     * Deletes every due object in batches, then refreshes the backlog.
+     */
+    @Scheduled(fixedDelayString = "${avatar.deletion.interval}")
+    public void reap() {
+        Integer reaped;
+        do {
+            reaped = transactionTemplate.execute(status -> reapBatch());
+        } while (reaped != null && reaped == batchSize);
+        backlog.set(deletionRepository.count());
+    }
+
+    /**
+     * Deletes one batch of due objects in a transaction holding the catalog lock. S3 is called under the lock,
+     * which delays avatar writes by at most one batch.
+     *
+     * @return the number of due objects in the batch
+     */
+    private int reapBatch() {
+        avatarRepository.lockCatalog();
+        List<AvatarObjectDeletion> due =
+                deletionRepository.findByNextAttemptAtLessThanEqualOrderByNextAttemptAt(Instant.now(), Limit.of(batchSize));
+        if (!due.isEmpty()) {
+            reap(due);
+        }
+        return due.size();
+    }
+
+    private void reap(List<AvatarObjectDeletion> due) {
+        Set<String> reuploaded = avatarRepository.findObjectKeysIn(due.stream()
+                .map(AvatarObjectDeletion::getSourceObjectKey)
+                .collect(Collectors.toSet()));
+
+        List<AvatarObjectDeletion> done = new ArrayList<>();
+        List<AvatarObjectDeletion> pending = new ArrayList<>();
+        for (AvatarObjectDeletion deletion : due) {
+            (reuploaded.contains(deletion.getSourceObjectKey()) ? done : pending).add(deletion);
+        }
+        skippedCounter.increment(done.size());
+
+        Set<String> failedKeys = deleteFiles(pending);
+        List<AvatarObjectDeletion> failed = new ArrayList<>();
+        for (AvatarObjectDeletion deletion : pending) {
+            (failedKeys.contains(deletion.getObjectKey()) ? failed : done).add(deletion);
+        }
+        deletedCounter.increment(pending.size() - failed.size());
+        failedCounter.increment(failed.size());
+
+        deletionRepository.deleteAllInBatch(done);
+        if (!failed.isEmpty()) {
+            Instant now = Instant.now();
+            for (AvatarObjectDeletion deletion : failed) {
+                deletion.setAttempts(deletion.getAttempts() + 1);
+                deletion.setNextAttemptAt(now.plus(backoff(deletion.getAttempts())));
+            }
+            deletionRepository.saveAll(failed);
+        }
+    }
+
+    /**
+     * Deletes the objects and returns the keys that could not be deleted.
+     */
+    private Set<String> deleteFiles(List<AvatarObjectDeletion> deletions) {
+        if (deletions.isEmpty()) {
+            return Set.of();
+        }
+        List<String> objectKeys = deletions.stream().map(AvatarObjectDeletion::getObjectKey).distinct().toList();
+        try {
+            List<String> failedKeys = s3Service.deleteFiles(bucketName, objectKeys);
+            if (!failedKeys.isEmpty()) {
+                logger.warn("Failed to delete {} of {} Avatar files, retrying later", failedKeys.size(), objectKeys.size());
+            }
+            return new HashSet<>(failedKeys);
+        } catch (Exception e) {
+            logger.warn("Failed to delete {} Avatar files, retrying later: {}", objectKeys.size(), e.getMessage());
+            return new HashSet<>(objectKeys);
+        }
+    }
+
+    /**
+     * Doubles the delay after every failed attempt, up to the maximum.
+     */
+    Duration backoff(int attempts) {
+        Duration backoff = initialBackoff.multipliedBy(1L << Math.min(attempts - 1, 30));
+        return backoff.compareTo(maxBackoff) > 0 ? maxBackoff : backoff;
+    }
+
+}
@@ -1,6 +1,11 @@
 package com.mariuszilinskas.vsp.users.profile.service;
 
+import com.mariuszilinskas.vsp.users.profile.dto.AvatarCatalogDelta;
+import com.mariuszilinskas.vsp.users.profile.dto.AvatarPage;
 import com.mariuszilinskas.vsp.users.profile.dto.CreateAvatarRequest;
+import com.mariuszilinskas.vsp.users.profile.dto.AvatarResponse;
+import com.mariuszilinskas.vsp.users.profile.dto.CreateAvatarStreamRequest;
+import com.mariuszilinskas.vsp.users.profile.dto.EncodedAvatarCatalog;
 import com.mariuszilinskas.vsp.users.profile.model.Avatar;
 
 import java.io.IOException;
@@ -9,11 +14,21 @@ import java.util.UUID;
 
 public interface AvatarService {
 
-    Avatar createAvatar(CreateAvatarRequest request) throws IOException;
+    AvatarResponse createAvatar(CreateAvatarRequest request) throws IOException;
 
-    List<Avatar> getAvatars();
+    AvatarResponse createAvatar(CreateAvatarStreamRequest request);
 
-    Avatar getAvatar(UUID avatarId);
+    List<AvatarResponse> getAvatars();
+
+    EncodedAvatarCatalog getEncodedAvatars();
+
+    AvatarPage getAvatars(String cursor, int limit);
+
+    AvatarCatalogDelta getAvatarChanges(Long sinceVersion);
+
+    Avatar getAvatarReference(UUID avatarId);
+
+    String getAvatarUrl(UUID avatarId);
 
     Avatar getRandomAvatar();
 
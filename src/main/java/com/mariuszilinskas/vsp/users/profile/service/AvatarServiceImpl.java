@@ -1,54 +1,150 @@
 package com.mariuszilinskas.vsp.users.profile.service;
 
+import com.mariuszilinskas.vsp.users.profile.dto.AvatarCatalogDelta;
+import com.mariuszilinskas.vsp.users.profile.dto.AvatarPage;
+import com.mariuszilinskas.vsp.users.profile.dto.AvatarRenditionResponse;
+import com.mariuszilinskas.vsp.users.profile.dto.AvatarResponse;
 import com.mariuszilinskas.vsp.users.profile.dto.CreateAvatarRequest;
+import com.mariuszilinskas.vsp.users.profile.dto.CreateAvatarStreamRequest;
+import com.mariuszilinskas.vsp.users.profile.dto.EncodedAvatarCatalog;
+import com.mariuszilinskas.vsp.users.profile.dto.ImageRendition;
+import com.mariuszilinskas.vsp.users.profile.dto.S3UploadResult;
 import com.mariuszilinskas.vsp.users.profile.exception.EntityExistsException;
 import com.mariuszilinskas.vsp.users.profile.exception.IncorrectFileException;
+import com.mariuszilinskas.vsp.users.profile.exception.InvalidCursorException;
 import com.mariuszilinskas.vsp.users.profile.exception.ResourceNotFoundException;
 import com.mariuszilinskas.vsp.users.profile.model.Avatar;
+import com.mariuszilinskas.vsp.users.profile.model.AvatarRendition;
 import com.mariuszilinskas.vsp.users.profile.repository.AvatarRepository;
+import com.mariuszilinskas.vsp.users.profile.util.TransactionUtils;
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HexFormat;
 import java.util.List;
-import java.util.Random;
+import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
 
 /**
  * Service implementation for managing user avatars.
  * This service handles user creation, retrieval and deletion.
+ * Image objects are stored under the SHA-256 of their content, so identical uploads share one object,
+ * which is only deleted once no avatar references it.
  *
  * @author Marius Zilinskas
  */
 @Service
 @RequiredArgsConstructor
+@Timed(value = "avatar.service", histogram = true)
 public class AvatarServiceImpl implements AvatarService {
 
     private static final Logger logger = LoggerFactory.getLogger(AvatarServiceImpl.class);
     private final AvatarRepository avatarRepository;
+    private final AvatarCatalogCache avatarCatalogCache;
     private final S3Service s3Service;
+    private final ImageService imageService;
+    private final ObjectUrlStrategy objectUrlStrategy;
+    private final CacheInvalidationService cacheInvalidationService;
+    private final AvatarObjectReaper avatarObjectReaper;
+    private final AvatarCatalogChangeLog avatarCatalogChangeLog;
+    private final TransactionTemplate transactionTemplate;
 
     @Value("${aws.s3.avatarBucketName}")
     private String avatarBucketName;
 
-    @Value("${aws.s3.region}")
-    private String region;
+    private static final String STAGING_PREFIX = "staging/";
+
+    static final int MAX_PAGE_SIZE = 500;
 
     private static final Set<String> ALLOWED_EXTENSIONS = Set.of(
             ".jpg", ".jpeg", ".png", ".gif", ".bmp", ".tiff", ".webp", ".svg"
     );
 
     @Override
-    public Avatar createAvatar(CreateAvatarRequest request) throws IOException {
+    public AvatarResponse createAvatar(CreateAvatarRequest request) throws IOException {
         logger.info("Creating Avatar: '{}", request.avatarName());
         checkNameExists(request.avatarName());
-        String objectKey = generateObjectKey(request.file().getOriginalFilename());
-        s3Service.uploadFile(avatarBucketName, objectKey, request.file());
-        return populateNewAvatarWithRequestData(request, objectKey);
+        String fileExtension = getFileExtension(request.file().getOriginalFilename());
+        String objectKey = hashContent(request.file().getInputStream()) + fileExtension;
+        try {
+            return saveAvatar(request.avatarName(), objectKey, () -> uploadFile(objectKey, request.file()));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private List<AvatarRendition> uploadFile(String objectKey, MultipartFile file) {
+        try {
+            s3Service.uploadFile(avatarBucketName, objectKey, file);
+            return uploadRenditions(objectKey, file.getInputStream());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * The hash of a streamed upload is only known once it completes, so the stream is uploaded
+     * to a staging key first and then either moved under its content key or discarded as a duplicate.
+     */
+    @Override
+    public AvatarResponse createAvatar(CreateAvatarStreamRequest request) {
+        logger.info("Creating Avatar from stream: '{}", request.avatarName());
+        checkNameExists(request.avatarName());
+        String fileExtension = getFileExtension(request.fileName());
+        String stagingKey = STAGING_PREFIX + UUID.randomUUID() + fileExtension;
+        S3UploadResult upload = s3Service.uploadStream(avatarBucketName, stagingKey, request.content(), request.contentType());
+        String objectKey = upload.checksum() + fileExtension;
+        logger.debug("Streamed Avatar file '{}' [bytes: {}, sha256: '{}']", objectKey, upload.contentLength(), upload.checksum());
+
+        try {
+            return saveAvatar(request.avatarName(), objectKey, () -> moveStagedFile(stagingKey, objectKey));
+        } finally {
+            discardStagedFile(stagingKey);
+        }
+    }
+
+    private List<AvatarRendition> moveStagedFile(String stagingKey, String objectKey) {
+        s3Service.copyFile(avatarBucketName, stagingKey, objectKey);
+        // The upload was never buffered, so the image is read back once to create the renditions
+        try (InputStream uploaded = s3Service.downloadFile(avatarBucketName, objectKey)) {
+            return uploadRenditions(objectKey, uploaded);
+        } catch (IOException e) {
+            logger.warn("Failed to read back Avatar file '{}', skipping renditions: {}", objectKey, e.getMessage());
+            return List.of();
+        }
+    }
+
+    /**
+     * Deletes the staged upload whether or not the avatar was saved, leaving it to the reaper if S3 fails.
+     */
+    private void discardStagedFile(String stagingKey) {
+        try {
+            s3Service.deleteFile(stagingKey, avatarBucketName);
+        } catch (Exception e) {
+            logger.warn("Failed to delete staged Avatar file '{}', scheduling its deletion: {}", stagingKey, e.getMessage());
+            avatarObjectReaper.scheduleDeletion(stagingKey);
+        }
     }
 
     private void checkNameExists(String avatarName) {
@@ -57,20 +153,68 @@ public class AvatarServiceImpl implements AvatarService {
         }
     }
 
-    private Avatar populateNewAvatarWithRequestData(CreateAvatarRequest request, String objectKey) {
-        Avatar newAvatar = new Avatar();
-        newAvatar.setAvatarName(request.avatarName());
-        newAvatar.setObjectKey(objectKey);
-        newAvatar.setImageUrl(generateObjectUrl(objectKey));
-        return avatarRepository.save(newAvatar);
+    /**
+     * Creates the renditions of the uploaded image and uploads each of them next to the original.
+     */
+    private List<AvatarRendition> uploadRenditions(String objectKey, InputStream source) {
+        String baseKey = objectKey.substring(0, objectKey.lastIndexOf("."));
+        List<AvatarRendition> renditions = new ArrayList<>();
+        for (ImageRendition rendition : imageService.createRenditions(source)) {
+            String renditionKey = baseKey + "-" + rendition.size() + "." + rendition.format();
+            s3Service.uploadFile(avatarBucketName, renditionKey, rendition.content(), rendition.contentType());
+            renditions.add(new AvatarRendition(rendition.size(), rendition.format(), renditionKey));
+        }
+        return renditions;
+    }
+
+    /**
+     * Saves the avatar and records its addition in one transaction under the catalog lock, like {@link #deleteAvatar},
+     * so that the avatar never commits without its change and changes commit in version order.
+     * The stored image and renditions are shared if another avatar has the same image, otherwise they are uploaded
+     * under the lock too: the {@link AvatarObjectReaper} deletes the files of deleted avatars under the same lock,
+     * so it cannot delete an image uploaded again for this avatar before the avatar commits.
+     */
+    private AvatarResponse saveAvatar(String avatarName, String objectKey, Supplier<List<AvatarRendition>> upload) {
+        Avatar avatar = transactionTemplate.execute(status -> {
+            avatarRepository.lockCatalog();
+            Avatar newAvatar = new Avatar();
+            newAvatar.setAvatarName(avatarName);
+            newAvatar.setObjectKey(objectKey);
+            newAvatar.setRenditions(new ArrayList<>(avatarRepository.findFirstByObjectKey(objectKey)
+                    .map(this::copyRenditions)
+                    .orElseGet(upload)));
+            Avatar saved = avatarRepository.save(newAvatar);
+            avatarCatalogChangeLog.recordAdded(saved.getId());
+            catalogChanged();
+            return saved;
+        });
+        return toResponse(avatar);
+    }
+
+    private List<AvatarRendition> copyRenditions(Avatar existing) {
+        logger.info("Reusing stored Avatar file '{}'", existing.getObjectKey());
+        return existing.getRenditions().stream()
+                .map(r -> new AvatarRendition(r.getSize(), r.getFormat(), r.getObjectKey()))
+                .toList();
     }
 
-    private String generateObjectKey(String originalFileName) {
-        String fileExtension = getFileExtension(originalFileName);
-        return UUID.randomUUID() + fileExtension;
+    private AvatarResponse toResponse(Avatar avatar) {
+        List<AvatarRenditionResponse> renditions = avatar.getRenditions().stream()
+                .map(r -> new AvatarRenditionResponse(r.getSize(), r.getFormat(), generateObjectUrl(r.getObjectKey())))
+                .toList();
+        return new AvatarResponse(avatar.getId(), avatar.getAvatarName(), generateObjectUrl(avatar.getObjectKey()), renditions);
     }
 
-    private String getFileExtension(String originalFileName) {
+    static String hashContent(InputStream content) throws IOException {
+        try (DigestInputStream input = new DigestInputStream(content, MessageDigest.getInstance("SHA-256"))) {
+            input.transferTo(OutputStream.nullOutputStream());
+            return HexFormat.of().formatHex(input.getMessageDigest().digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    static String getFileExtension(String originalFileName) {
         if (originalFileName == null || originalFileName.lastIndexOf(".") == -1)
             throw new IncorrectFileException("No extension found");
 
@@ -83,41 +227,143 @@ public class AvatarServiceImpl implements AvatarService {
     }
 
     private String generateObjectUrl(String objectKey) {
-        return String.format("https://%s.s3.%s.amazonaws.com/%s", avatarBucketName, region, objectKey);
+        return objectUrlStrategy.getUrl(objectKey);
     }
 
     @Override
-    public List<Avatar> getAvatars() {
+    public List<AvatarResponse> getAvatars() {
         logger.info("Getting all Avatars");
-        return avatarRepository.findAll();
+        return avatarCatalogCache.getAvatars();
     }
 
     @Override
-    public Avatar getAvatar(UUID avatarId) {
-        logger.info("Getting Avatar [id: '{}']", avatarId);
-        return findAvatarById(avatarId);
+    public EncodedAvatarCatalog getEncodedAvatars() {
+        logger.info("Getting all Avatars encoded");
+        return avatarCatalogCache.getEncodedAvatars();
     }
 
     /**
-     * Used when choosing random avatars from new users
+     * Returns one page of the catalog in avatar name order. Names are unique, so paging by the last name seen
+     * never skips or repeats avatars, and each page is two index range scans whatever the size of the catalog.
+     */
+    @Override
+    public AvatarPage getAvatars(String cursor, int limit) {
+        logger.info("Getting Avatars page [cursor: '{}', limit: {}]", cursor, limit);
+        int pageSize = Math.clamp(limit, 1, MAX_PAGE_SIZE);
+        // One more name than needed tells whether there is a next page
+        List<String> names = cursor == null
+                ? avatarRepository.findNames(Limit.of(pageSize + 1))
+                : avatarRepository.findNamesAfter(decodeCursor(cursor), Limit.of(pageSize + 1));
+        if (names.isEmpty()) {
+            return new AvatarPage(List.of(), null);
+        }
+
+        List<String> pageNames = names.subList(0, Math.min(names.size(), pageSize));
+        List<AvatarResponse> avatars = AvatarCatalogCache.toResponses(
+                avatarRepository.findCatalogByAvatarNameIn(pageNames), objectUrlStrategy);
+        String nextCursor = names.size() > pageSize ? encodeCursor(pageNames.getLast()) : null;
+        return new AvatarPage(avatars, nextCursor);
+    }
+
+    static String encodeCursor(String avatarName) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(avatarName.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static String decodeCursor(String cursor) {
+        try {
+            return new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidCursorException(cursor);
+        }
+    }
+
+    @Override
+    public AvatarCatalogDelta getAvatarChanges(Long sinceVersion) {
+        logger.info("Getting Avatar changes since version {}", sinceVersion);
+        return avatarCatalogChangeLog.getChangesSince(sinceVersion);
+    }
+
+    /**
+     * Returns a lazy reference to an avatar for a profile, without querying the database.
+     * The reference fails on write if the avatar does not exist.
+     */
+    @Override
+    public Avatar getAvatarReference(UUID avatarId) {
+        return avatarRepository.getReferenceById(avatarId);
+    }
+
+    /**
+     * Returns the image URL of an avatar without loading it: the object key comes from the cache,
+     * or from a single column query on a miss. Returns {@code null} if the avatar does not exist.
+     */
+    @Override
+    public String getAvatarUrl(UUID avatarId) {
+        return avatarCatalogCache.findObjectKey(avatarId)
+                .map(this::generateObjectUrl)
+                .orElse(null);
+    }
+
+    /**
+     * Used when choosing random avatars from new users.
+     * Picks an ID from the cached ID index, checks it against the cached object keys and returns a reference to it.
      */
     @Override
     public Avatar getRandomAvatar() {
         logger.info("Getting random Avatar");
-        List<Avatar> avatars = avatarRepository.findAll();
-        if (avatars.isEmpty()) {
+        List<UUID> avatarIds = avatarCatalogCache.getAvatarIds();
+        if (avatarIds.isEmpty()) {
             return null;
         }
-        Random random = new Random();
-        return avatars.get(random.nextInt(avatars.size()));
+        Optional<UUID> avatarId = pickExisting(avatarIds);
+        if (avatarId.isEmpty()) {
+            // The index is stale, retry once with a fresh one
+            avatarCatalogCache.invalidate();
+            avatarId = pickExisting(avatarCatalogCache.getAvatarIds());
+        }
+        return avatarId.map(avatarRepository::getReferenceById).orElse(null);
     }
 
+    private Optional<UUID> pickExisting(List<UUID> avatarIds) {
+        if (avatarIds.isEmpty()) {
+            return Optional.empty();
+        }
+        UUID avatarId = pickRandom(avatarIds);
+        return avatarCatalogCache.findObjectKey(avatarId).map(objectKey -> avatarId);
+    }
+
+    private UUID pickRandom(List<UUID> avatarIds) {
+        return avatarIds.get(ThreadLocalRandom.current().nextInt(avatarIds.size()));
+    }
+
+    /**
+     * Deletes the avatar, records its removal for catalog sync and schedules its files for deletion
+     * by the {@link AvatarObjectReaper} in one transaction under the catalog lock, so the request never waits for S3.
+     * Files still referenced by another avatar are kept.
+     */
     @Override
+    @Transactional
     public void deleteAvatar(UUID avatarId) {
         logger.info("Deleting Avatar [id: '{}']", avatarId);
+        avatarRepository.lockCatalog();
         Avatar avatar = findAvatarById(avatarId);
-        s3Service.deleteFile(avatar.getObjectKey(), avatarBucketName);
+        if (avatarRepository.countByObjectKey(avatar.getObjectKey()) <= 1) {
+            avatarObjectReaper.scheduleDeletion(avatar);
+        } else {
+            logger.info("Avatar file '{}' is still referenced, keeping it", avatar.getObjectKey());
+        }
         avatarRepository.delete(avatar);
+        avatarCatalogChangeLog.recordRemoved(avatarId);
+        catalogChanged();
+    }
+
+    /**
+     * Drops the cached catalog once the write commits, here and on other instances.
+     */
+    private void catalogChanged() {
+        TransactionUtils.afterCommit(() -> {
+            avatarCatalogCache.invalidate();
+            cacheInvalidationService.avatarCatalogChanged();
+        });
     }
 
     private Avatar findAvatarById(UUID avatarId) {
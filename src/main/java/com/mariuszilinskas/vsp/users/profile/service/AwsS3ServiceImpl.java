@@ -1,20 +1,33 @@
 package com.mariuszilinskas.vsp.users.profile.service;
 
 import com.amazonaws.services.s3.AmazonS3;
-import com.amazonaws.services.s3.model.AmazonS3Exception;
-import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.*;
+import com.mariuszilinskas.vsp.users.profile.dto.S3UploadResult;
 import com.mariuszilinskas.vsp.users.profile.exception.FileUploadException;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.List;
 
 /**
  * Service implementation for managing files in AWS S3.
- * This service handles file uploads and deletions in S3 buckets.
+ * This service handles file uploads and deletions in S3 buckets,
+ * recording the latency and outcome of every operation and the bytes transferred.
  *
  * @author Marius Zilinskas
  */
@@ -23,18 +36,33 @@ import java.io.IOException;
 public class AwsS3ServiceImpl implements S3Service {
 
     private static final Logger logger = LoggerFactory.getLogger(AwsS3ServiceImpl.class);
+
+    /**
+     * Object keys are never reused for different content, so objects can be cached forever.
+     */
+    private static final String CACHE_CONTROL = "public, max-age=31536000, immutable";
+    private static final int MAX_KEYS_PER_DELETE = 1000;
     private final AmazonS3 s3Client;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${aws.s3.multipart.part-size}")
+    private DataSize partSize;
 
     @Override
     public void uploadFile(String bucketName, String objectKey, MultipartFile file) throws IOException {
         logger.info("Uploading file '{}' to s3 '{}' bucket", objectKey, bucketName);
+        Timer.Sample sample = Timer.start(meterRegistry);
+        boolean succeeded = false;
 
         try {
             ObjectMetadata metadata = new ObjectMetadata();
             metadata.setContentLength(file.getSize());
             metadata.setContentType(file.getContentType());
+            metadata.setCacheControl(CACHE_CONTROL);
 
             s3Client.putObject(bucketName, objectKey, file.getInputStream(), metadata);
+            recordBytes("upload", file.getSize());
+            succeeded = true;
 
         } catch (AmazonS3Exception e) {
             if (e.getStatusCode() == 404) {
@@ -46,20 +74,227 @@ public class AwsS3ServiceImpl implements S3Service {
 
         } catch (Exception e) {
             throw new FileUploadException("Error occurred while uploading file: " + e.getMessage(), e);
+
+        } finally {
+            recordRequest("upload", sample, succeeded);
+        }
+    }
+
+    @Override
+    public void uploadFile(String bucketName, String objectKey, byte[] content, String contentType) {
+        logger.info("Uploading file '{}' to s3 '{}' bucket", objectKey, bucketName);
+        Timer.Sample sample = Timer.start(meterRegistry);
+        boolean succeeded = false;
+
+        try {
+            ObjectMetadata metadata = new ObjectMetadata();
+            metadata.setContentLength(content.length);
+            metadata.setContentType(contentType);
+            metadata.setCacheControl(CACHE_CONTROL);
+
+            s3Client.putObject(bucketName, objectKey, new ByteArrayInputStream(content), metadata);
+            recordBytes("upload", content.length);
+            succeeded = true;
+
+        } catch (AmazonS3Exception e) {
+            throw new FileUploadException("AmazonS3 error occurred while uploading the file: " + e.getErrorMessage(), e);
+
+        } catch (Exception e) {
+            throw new FileUploadException("Error occurred while uploading file: " + e.getMessage(), e);
+
+        } finally {
+            recordRequest("upload", sample, succeeded);
+        }
+    }
+
+    /**
+     * Streams the input into an S3 multipart upload, holding at most one part in memory.
+     * The content length and SHA-256 checksum are computed while streaming.
+     * The multipart upload is aborted if anything fails, so no incomplete parts are left behind.
+     */
+    @Override
+    public S3UploadResult uploadStream(String bucketName, String objectKey, InputStream inputStream, String contentType) {
+        logger.info("Streaming file '{}' to s3 '{}' bucket", objectKey, bucketName);
+        Timer.Sample sample = Timer.start(meterRegistry);
+        boolean succeeded = false;
+
+        ObjectMetadata metadata = new ObjectMetadata();
+        metadata.setContentType(contentType);
+        metadata.setCacheControl(CACHE_CONTROL);
+        String uploadId;
+        try {
+            uploadId = s3Client.initiateMultipartUpload(
+                    new InitiateMultipartUploadRequest(bucketName, objectKey, metadata)).getUploadId();
+        } catch (RuntimeException e) {
+            recordRequest("upload", sample, false);
+            throw e;
+        }
+
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] buffer = new byte[(int) partSize.toBytes()];
+            List<PartETag> partETags = new ArrayList<>();
+            long contentLength = 0;
+
+            int read = inputStream.readNBytes(buffer, 0, buffer.length);
+            if (read == 0) {
+                throw new IOException("File is empty");
+            }
+            while (read > 0) {
+                digest.update(buffer, 0, read);
+                UploadPartRequest partRequest = new UploadPartRequest()
+                        .withBucketName(bucketName)
+                        .withKey(objectKey)
+                        .withUploadId(uploadId)
+                        .withPartNumber(partETags.size() + 1)
+                        .withInputStream(new ByteArrayInputStream(buffer, 0, read))
+                        .withPartSize(read);
+                partETags.add(s3Client.uploadPart(partRequest).getPartETag());
+                contentLength += read;
+                read = read < buffer.length ? 0 : inputStream.readNBytes(buffer, 0, buffer.length);
+            }
+
+            s3Client.completeMultipartUpload(
+                    new CompleteMultipartUploadRequest(bucketName, objectKey, uploadId, partETags));
+            recordBytes("upload", contentLength);
+            succeeded = true;
+            return new S3UploadResult(contentLength, HexFormat.of().formatHex(digest.digest()));
+
+        } catch (AmazonS3Exception e) {
+            abortMultipartUpload(bucketName, objectKey, uploadId);
+            throw new FileUploadException("AmazonS3 error occurred while uploading the file: " + e.getErrorMessage(), e);
+
+        } catch (IOException e) {
+            abortMultipartUpload(bucketName, objectKey, uploadId);
+            throw new FileUploadException("IO error: " + e.getMessage(), e);
+
+        } catch (Exception e) {
+            abortMultipartUpload(bucketName, objectKey, uploadId);
+            throw new FileUploadException("Error occurred while uploading file: " + e.getMessage(), e);
+
+        } finally {
+            recordRequest("upload", sample, succeeded);
+        }
+    }
+
+    private void abortMultipartUpload(String bucketName, String objectKey, String uploadId) {
+        try {
+            s3Client.abortMultipartUpload(new AbortMultipartUploadRequest(bucketName, objectKey, uploadId));
+        } catch (Exception e) {
+            logger.error("Failed to abort multipart upload of '{}' [uploadId: '{}']: {}", objectKey, uploadId, e.getMessage());
+        }
+    }
+
+    @Override
+    public InputStream downloadFile(String bucketName, String objectKey) {
+        logger.info("Downloading file '{}' from s3 '{}' bucket", objectKey, bucketName);
+        Timer.Sample sample = Timer.start(meterRegistry);
+        boolean succeeded = false;
+
+        try {
+            S3Object object = s3Client.getObject(bucketName, objectKey);
+            recordBytes("download", object.getObjectMetadata().getContentLength());
+            succeeded = true;
+            return object.getObjectContent();
+        } catch (AmazonS3Exception e) {
+            throw new FileUploadException("AmazonS3 error occurred while downloading the file: " + e.getErrorMessage(), e);
+        } catch (Exception e) {
+            throw new FileUploadException("Error occurred while downloading the file: " + e.getMessage(), e);
+        } finally {
+            // Only the time to first byte, the content is streamed by the caller
+            recordRequest("download", sample, succeeded);
+        }
+    }
+
+    /**
+     * Copies an object within the bucket, keeping its metadata.
+     */
+    @Override
+    public void copyFile(String bucketName, String sourceKey, String targetKey) {
+        logger.info("Copying file '{}' to '{}' in s3 '{}' bucket", sourceKey, targetKey, bucketName);
+        Timer.Sample sample = Timer.start(meterRegistry);
+        boolean succeeded = false;
+
+        try {
+            s3Client.copyObject(bucketName, sourceKey, bucketName, targetKey);
+            succeeded = true;
+        } catch (AmazonS3Exception e) {
+            throw new FileUploadException("AmazonS3 error occurred while copying the file: " + e.getErrorMessage(), e);
+        } catch (Exception e) {
+            throw new FileUploadException("Error occurred while copying the file: " + e.getMessage(), e);
+        } finally {
+            recordRequest("copy", sample, succeeded);
         }
     }
 
     @Override
     public void deleteFile(String objectKey, String bucketName) {
         logger.info("Deleting file '{}' from s3 '{}' bucket", objectKey, bucketName);
+        Timer.Sample sample = Timer.start(meterRegistry);
+        boolean succeeded = false;
 
         try {
             s3Client.deleteObject(bucketName, objectKey);
+            succeeded = true;
         } catch (AmazonS3Exception e) {
             throw new FileUploadException("AmazonS3 error occurred while deleting the file: " + e.getMessage(), e);
         } catch (Exception e) {
             throw new FileUploadException("Error occurred while deleting the file: " + e.getMessage(), e);
+        } finally {
+            recordRequest("delete", sample, succeeded);
         }
     }
 
+    /**
+     * Deletes objects with multi-object delete requests of up to 1000 keys each.
+     * Failures are reported rather than thrown, so that the caller can retry only the keys that failed.
+     *
+     * @return the keys that could not be deleted
+     */
+    @Override
+    public List<String> deleteFiles(String bucketName, Collection<String> objectKeys) {
+        logger.info("Deleting {} files from s3 '{}' bucket", objectKeys.size(), bucketName);
+        List<String> keys = List.copyOf(objectKeys);
+        List<String> failedKeys = new ArrayList<>();
+
+        for (int from = 0; from < keys.size(); from += MAX_KEYS_PER_DELETE) {
+            List<String> chunk = keys.subList(from, Math.min(from + MAX_KEYS_PER_DELETE, keys.size()));
+            Timer.Sample sample = Timer.start(meterRegistry);
+            boolean succeeded = false;
+
+            try {
+                s3Client.deleteObjects(new DeleteObjectsRequest(bucketName)
+                        .withKeys(chunk.toArray(String[]::new))
+                        .withQuiet(true));
+                succeeded = true;
+            } catch (MultiObjectDeleteException e) {
+                e.getErrors().forEach(error -> failedKeys.add(error.getKey()));
+            } catch (Exception e) {
+                logger.error("Error occurred while deleting {} files: {}", chunk.size(), e.getMessage());
+                failedKeys.addAll(chunk);
+            } finally {
+                recordRequest("delete-batch", sample, succeeded);
+            }
+        }
+        return failedKeys;
+    }
+
+    private void recordRequest(String operation, Timer.Sample sample, boolean succeeded) {
+        sample.stop(Timer.builder("s3.requests")
+                .description("Duration of S3 operations")
+                .tag("operation", operation)
+                .tag("outcome", succeeded ? "success" : "failure")
+                .publishPercentileHistogram()
+                .register(meterRegistry));
+    }
+
+    private void recordBytes(String operation, long bytes) {
+        DistributionSummary.builder("s3.transfer.size")
+                .description("Size of objects transferred to and from S3")
+                .baseUnit("bytes")
+                .tag("operation", operation)
+                .register(meterRegistry)
+                .record(bytes);
+    }
+
 }
@@ -0,0 +1,164 @@
+package com.mariuszilinskas.vsp.users.profile.service;
+
+import com.mariuszilinskas.vsp.users.profile.dto.CacheInvalidationMessage;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.core.AmqpTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Keeps the in-process caches of all instances consistent.
+ * Changes are collected locally and broadcast over the RabbitMQ exchange on every flush, so a burst of writes
+ * becomes a single message. Each instance receives the broadcast on its own anonymous queue and evicts
+ * the affected entries, ignoring the messages it published itself.
+ *
+ * @author Marius Zilinskas
+ */
+@Service
+public class CacheInvalidationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CacheInvalidationService.class);
+
+    private final String instanceId = UUID.randomUUID().toString();
+    private final AtomicBoolean pendingCatalog = new AtomicBoolean();
+    private final Set<UUID> pendingUserIds = ConcurrentHashMap.newKeySet();
+
+    private final AmqpTemplate amqpTemplate;
+    private final AvatarCatalogCache avatarCatalogCache;
+    private final ProfileCache profileCache;
+    private final String exchange;
+    private final String routingKey;
+    private final int maxKeysPerMessage;
+
+    private final Counter publishedCounter;
+    private final Counter publishFailuresCounter;
+    private final Counter receivedCounter;
+    private final Counter ignoredCounter;
+    private final Timer lagTimer;
+
+    public CacheInvalidationService(
+            AmqpTemplate amqpTemplate,
+            AvatarCatalogCache avatarCatalogCache,
+            ProfileCache profileCache,
+            MeterRegistry meterRegistry,
+            @Value("${rabbitmq.exchange}") String exchange,
+            @Value("${rabbitmq.routing-keys.cache-invalidation}") String routingKey,
+            @Value("${rabbitmq.cache-invalidation.max-keys-per-message}") int maxKeysPerMessage
+    ) {
+        this.amqpTemplate = amqpTemplate;
+        this.avatarCatalogCache = avatarCatalogCache;
+        this.profileCache = profileCache;
+        this.exchange = exchange;
+        this.routingKey = routingKey;
+        this.maxKeysPerMessage = maxKeysPerMessage;
+
+        this.publishedCounter = Counter.builder("cache.invalidation.published")
+                .description("Cache invalidation messages published to other instances")
+                .register(meterRegistry);
+        this.publishFailuresCounter = Counter.builder("cache.invalidation.publish.failures")
+                .register(meterRegistry);
+        this.receivedCounter = Counter.builder("cache.invalidation.received")
+                .tag("result", "applied")
+                .description("Cache invalidation messages received from other instances")
+                .register(meterRegistry);
+        this.ignoredCounter = Counter.builder("cache.invalidation.received")
+                .tag("result", "ignored")
+                .register(meterRegistry);
+        this.lagTimer = Timer.builder("cache.invalidation.lag")
+                .description("Time from publishing an invalidation to applying it on another instance")
+                .register(meterRegistry);
+    }
+
+    public void avatarCatalogChanged() {
+        pendingCatalog.set(true);
+    }
+
+    public void profilesChanged(UUID userId) {
+        pendingUserIds.add(userId);
+    }
+
+    public void profilesChanged(Collection<UUID> userIds) {
+        pendingUserIds.addAll(userIds);
+    }
+
+    /**
+     * Publishes the changes collected since the last flush, splitting large bursts into several messages.
+     * A failed publish is not retried, the cache expiry bounds how long other instances serve stale data.
+     */
+    @Scheduled(fixedDelayString = "${rabbitmq.cache-invalidation.flush-interval}")
+    public void flush() {
+        boolean catalog = pendingCatalog.getAndSet(false);
+        List<Set<UUID>> chunks = drainPendingUserIds();
+        if (!catalog && chunks.isEmpty()) {
+            return;
+        }
+        if (chunks.isEmpty()) {
+            chunks.add(Set.of());
+        }
+
+        for (Set<UUID> userIds : chunks) {
+            var message = new CacheInvalidationMessage(instanceId, System.currentTimeMillis(), catalog, userIds);
+            try {
+                amqpTemplate.convertAndSend(exchange, routingKey, message);
+                publishedCounter.increment();
+            } catch (Exception e) {
+                logger.error("Failed to publish cache invalidation for {} users: {}", userIds.size(), e.getMessage());
+                publishFailuresCounter.increment();
+            }
+            catalog = false;
+        }
+    }
+
+    private List<Set<UUID>> drainPendingUserIds() {
+        List<Set<UUID>> chunks = new ArrayList<>();
+        Set<UUID> chunk = new HashSet<>();
+        Iterator<UUID> iterator = pendingUserIds.iterator();
+        while (iterator.hasNext()) {
+            chunk.add(iterator.next());
+            iterator.remove();
+            if (chunk.size() == maxKeysPerMessage) {
+                chunks.add(chunk);
+                chunk = new HashSet<>();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            chunks.add(chunk);
+        }
+        return chunks;
+    }
+
+    /**
+     * Evicts the entries changed on another instance, so that responses and their ETags follow the change.
+     */
+    public void handleInvalidation(CacheInvalidationMessage message) {
+        if (instanceId.equals(message.origin())) {
+            ignoredCounter.increment();
+            return;
+        }
+        if (message.avatarCatalog()) {
+            avatarCatalogCache.invalidate();
+        }
+        if (message.userIds() != null && !message.userIds().isEmpty()) {
+            profileCache.evictAll(message.userIds());
+        }
+        receivedCounter.increment();
+        lagTimer.record(Duration.ofMillis(Math.max(0, System.currentTimeMillis() - message.publishedAt())));
+    }
+
+}
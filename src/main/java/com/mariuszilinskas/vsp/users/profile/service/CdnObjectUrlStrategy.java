@@ -0,0 +1,30 @@
+package com.mariuszilinskas.vsp.users.profile.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Generates URLs on the CDN host that fronts the avatar bucket.
+ *
+ * @author Marius Zilinskas
+ */
+@Component
+@ConditionalOnProperty(name = "avatar.url.strategy", havingValue = "cdn")
+public class CdnObjectUrlStrategy implements ObjectUrlStrategy {
+
+    private final String urlPrefix;
+
+    public CdnObjectUrlStrategy(@Value("${avatar.url.cdn-host}") String cdnHost) {
+        if (cdnHost == null || cdnHost.isBlank()) {
+            throw new IllegalArgumentException("avatar.url.cdn-host must be set for the cdn strategy");
+        }
+        this.urlPrefix = "https://" + cdnHost + "/";
+    }
+
+    @Override
+    public String getUrl(String objectKey) {
+        return urlPrefix + objectKey;
+    }
+
+}
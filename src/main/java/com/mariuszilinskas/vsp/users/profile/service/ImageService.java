@@ -0,0 +1,12 @@
+package com.mariuszilinskas.vsp.users.profile.service;
+
+import com.mariuszilinskas.vsp.users.profile.dto.ImageRendition;
+
+import java.io.InputStream;
+import java.util.List;
+
+public interface ImageService {
+
+    List<ImageRendition> createRenditions(InputStream source);
+
+}
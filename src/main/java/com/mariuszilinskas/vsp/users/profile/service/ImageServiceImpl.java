@@ -0,0 +1,161 @@
+package com.mariuszilinskas.vsp.users.profile.service;
+
+import com.mariuszilinskas.vsp.users.profile.dto.ImageRendition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.MemoryCacheImageInputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Service implementation for processing uploaded images.
+ * This service decodes an image once and produces square renditions in every configured size and format.
+ *
+ * @author Marius Zilinskas
+ */
+@Service
+public class ImageServiceImpl implements ImageService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImageServiceImpl.class);
+
+    private final List<Integer> sizes;
+    private final List<String> formats;
+    private final int maxSourceDimension;
+
+    public ImageServiceImpl(
+            @Value("${avatar.renditions.sizes}") List<Integer> sizes,
+            @Value("${avatar.renditions.formats}") List<String> formats,
+            @Value("${avatar.renditions.max-source-dimension}") int maxSourceDimension
+    ) {
+        // Largest first, so that each rendition is scaled down from the previous one
+        this.sizes = sizes.stream().sorted(Comparator.reverseOrder()).toList();
+        this.formats = formats.stream().filter(this::isWritable).toList();
+        this.maxSourceDimension = maxSourceDimension;
+    }
+
+    private boolean isWritable(String format) {
+        if (ImageIO.getImageWritersByFormatName(format).hasNext()) {
+            return true;
+        }
+        logger.warn("No image writer available for '{}', skipping renditions in this format", format);
+        return false;
+    }
+
+    /**
+     * Decodes the source image and creates its renditions, skipping sizes larger than the image itself,
+     * since upscaling only adds bytes and no detail.
+     * Returns an empty list if the image cannot be decoded (e.g. SVG) or is too large to process.
+     */
+    @Override
+    public List<ImageRendition> createRenditions(InputStream source) {
+        BufferedImage image = decode(source);
+        if (image == null) {
+            return List.of();
+        }
+
+        List<ImageRendition> renditions = new ArrayList<>(sizes.size() * formats.size());
+        BufferedImage current = cropToSquare(image);
+        for (int size : sizes) {
+            if (size > current.getWidth()) {
+                logger.debug("Image of {}px is smaller than the {}px rendition, skipping it", current.getWidth(), size);
+                continue;
+            }
+            current = scale(current, size);
+            for (String format : formats) {
+                renditions.add(new ImageRendition(size, format, "image/" + format, encode(current, format)));
+            }
+        }
+        return renditions;
+    }
+
+    /**
+     * Reads through an in-memory stream rather than ImageIO's default, which may buffer to temporary files.
+     */
+    private BufferedImage decode(InputStream source) {
+        try (ImageInputStream input = new MemoryCacheImageInputStream(source)) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                logger.info("No image reader available for the uploaded file, skipping renditions");
+                return null;
+            }
+
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if (width > maxSourceDimension || height > maxSourceDimension) {
+                    logger.warn("Image of {}x{} exceeds the maximum of {}px, skipping renditions",
+                            width, height, maxSourceDimension);
+                    return null;
+                }
+                return reader.read(0);
+            } finally {
+                reader.dispose();
+            }
+        } catch (IOException e) {
+            logger.warn("Failed to decode the uploaded image, skipping renditions: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private BufferedImage cropToSquare(BufferedImage image) {
+        int side = Math.min(image.getWidth(), image.getHeight());
+        int x = (image.getWidth() - side) / 2;
+        int y = (image.getHeight() - side) / 2;
+        return image.getSubimage(x, y, side, side);
+    }
+
+    /**
+     * Scales down by halving first, which keeps bilinear interpolation sharp for large reductions.
+     */
+    private BufferedImage scale(BufferedImage image, int size) {
+        BufferedImage current = image;
+        while (current.getWidth() / 2 >= size) {
+            current = resize(current, current.getWidth() / 2);
+        }
+        return current.getWidth() == size ? current : resize(current, size);
+    }
+
+    private BufferedImage resize(BufferedImage image, int size) {
+        BufferedImage resized = new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D graphics = resized.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            graphics.drawImage(image, 0, 0, size, size, null);
+        } finally {
+            graphics.dispose();
+        }
+        return resized;
+    }
+
+    private byte[] encode(BufferedImage image, String format) {
+        try {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            // A writer for the format may still not support the image, e.g. JPEG with an alpha channel
+            if (!ImageIO.write(image, format, output)) {
+                throw new IllegalStateException("No image writer can encode a " + format + " rendition");
+            }
+            return output.toByteArray();
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to encode " + format + " rendition", e);
+        }
+    }
+
+}
@@ -0,0 +1,11 @@
+package com.mariuszilinskas.vsp.users.profile.service;
+
+/**
+ * Strategy for generating the public URL of a stored object.
+ * The active strategy is selected with the {@code avatar.url.strategy} property.
+ */
+public interface ObjectUrlStrategy {
+
+    String getUrl(String objectKey);
+
+}
@@ -0,0 +1,205 @@
+package com.mariuszilinskas.vsp.users.profile.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.mariuszilinskas.vsp.users.profile.dto.EncodedProfiles;
+import com.mariuszilinskas.vsp.users.profile.dto.ProfileResponse;
+import com.mariuszilinskas.vsp.users.profile.dto.UserProfileRow;
+import com.mariuszilinskas.vsp.users.profile.repository.ProfileRepository;
+import com.mariuszilinskas.vsp.users.profile.util.ETagUtils;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Read-through cache of each user's profile set, keyed by user ID.
+ * Bounded by entry count with Caffeine's W-TinyLFU eviction, so households that open the app often stay cached.
+ * Hit ratio and eviction counts are published as the {@code cache.*} metrics of the "profiles" cache.
+ *
+ * @author Marius Zilinskas
+ */
+@Component
+public class ProfileCache {
+
+    private static final String CACHE_NAME = "profiles";
+
+    private final ProfileRepository profileRepository;
+    private final ObjectMapper objectMapper;
+    private final ObjectUrlStrategy objectUrlStrategy;
+    private final Cache<UUID, Entry> profilesByUserId;
+
+    public ProfileCache(
+            ProfileRepository profileRepository,
+            ObjectMapper objectMapper,
+            ObjectUrlStrategy objectUrlStrategy,
+            MeterRegistry meterRegistry,
+            @Value("${profile.cache.maximum-size}") long maximumSize,
+            @Value("${profile.cache.expire-after-write}") Duration expireAfterWrite
+    ) {
+        this.profileRepository = profileRepository;
+        this.objectMapper = objectMapper;
+        this.objectUrlStrategy = objectUrlStrategy;
+        this.profilesByUserId = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, profilesByUserId, CACHE_NAME);
+    }
+
+    /**
+     * Returns an immutable list of the user's profiles, projected from the database on a cache miss.
+     * The load runs outside the cache's compute lock, so it never pins a virtual thread's carrier.
+     */
+    public List<ProfileResponse> getProfiles(UUID userId) {
+        return getEntry(userId).profiles;
+    }
+
+    /**
+     * Returns the user's profiles serialized to JSON with their digest. The profiles are encoded at most once
+     * per cache load, so conditional requests for unchanged profiles cost no serialization.
+     */
+    public EncodedProfiles getEncodedProfiles(UUID userId) {
+        Entry entry = getEntry(userId);
+        EncodedProfiles encoded = entry.encoded;
+        if (encoded == null) {
+            // Encoding twice on a race is harmless, both results are equal
+            encoded = encode(entry.profiles);
+            entry.encoded = encoded;
+        }
+        return encoded;
+    }
+
+    private Entry getEntry(UUID userId) {
+        Entry cached = profilesByUserId.getIfPresent(userId);
+        if (cached != null && cached.profiles != null) {
+            return cached;
+        }
+        Entry loading = startLoading(userId);
+        Entry loaded = null;
+        try {
+            loaded = new Entry(profileRepository.findRowsByUserId(userId).stream()
+                    .map(this::toResponse)
+                    .toList());
+        } finally {
+            finishLoading(userId, loading, loaded);
+        }
+        return loaded;
+    }
+
+    private EncodedProfiles encode(List<ProfileResponse> profiles) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(profiles);
+            return new EncodedProfiles(json, ETagUtils.digest(json));
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException("Failed to encode profiles", e);
+        }
+    }
+
+    /**
+     * Returns the profiles of each user, keyed by user ID, with an empty list for users without profiles.
+     * Cached users are served from the cache and all misses are projected from the database in a single query.
+     */
+    public Map<UUID, List<ProfileResponse>> getProfiles(Collection<UUID> userIds) {
+        Map<UUID, List<ProfileResponse>> profiles = new HashMap<>();
+        profilesByUserId.getAllPresent(userIds).forEach((userId, cached) -> {
+            if (cached.profiles != null) {
+                profiles.put(userId, cached.profiles);
+            }
+        });
+        Set<UUID> missing = new HashSet<>(userIds);
+        missing.removeAll(profiles.keySet());
+        if (missing.isEmpty()) {
+            return profiles;
+        }
+
+        Map<UUID, Entry> loadingEntries = new HashMap<>();
+        missing.forEach(userId -> loadingEntries.put(userId, startLoading(userId)));
+        Map<UUID, List<ProfileResponse>> loaded = new HashMap<>();
+        try {
+            Map<UUID, List<ProfileResponse>> rows = new HashMap<>();
+            missing.forEach(userId -> rows.put(userId, new ArrayList<>()));
+            profileRepository.findRowsByUserIdIn(missing)
+                    .forEach(row -> rows.get(row.userId()).add(toResponse(row)));
+            rows.forEach((userId, userProfiles) -> loaded.put(userId, List.copyOf(userProfiles)));
+        } finally {
+            loadingEntries.forEach((userId, loading) -> {
+                List<ProfileResponse> userProfiles = loaded.get(userId);
+                finishLoading(userId, loading, userProfiles == null ? null : new Entry(userProfiles));
+            });
+        }
+        profiles.putAll(loaded);
+        return profiles;
+    }
+
+    /**
+     * Marks the user's profiles as loading, unless another load is already in progress.
+     *
+     * @return the entry marking the load, or {@code null} if this load must not be cached
+     */
+    private Entry startLoading(UUID userId) {
+        Entry loading = new Entry(null);
+        return profilesByUserId.asMap().putIfAbsent(userId, loading) == null ? loading : null;
+    }
+
+    /**
+     * Caches the loaded profiles only if the user's entry is still the one marking this load.
+     * An eviction while loading removes the marker, so a result that may already be stale is never cached,
+     * while evictions of other users do not affect this load. A failed load just removes its marker.
+     */
+    private void finishLoading(UUID userId, Entry loading, Entry loaded) {
+        if (loading == null) {
+            return;
+        }
+        if (loaded == null) {
+            profilesByUserId.asMap().remove(userId, loading);
+        } else {
+            profilesByUserId.asMap().replace(userId, loading, loaded);
+        }
+    }
+
+    /**
+     * Generates the avatar URL from its object key, so that URLs always follow the current URL strategy.
+     */
+    private ProfileResponse toResponse(UserProfileRow row) {
+        return row.toResponse(row.avatarObjectKey() == null ? null : objectUrlStrategy.getUrl(row.avatarObjectKey()));
+    }
+
+    public void evict(UUID userId) {
+        profilesByUserId.invalidate(userId);
+    }
+
+    public void evictAll(Collection<UUID> userIds) {
+        profilesByUserId.invalidateAll(userIds);
+    }
+
+    /**
+     * A user's cached profiles and, once requested, their encoding, or a load in progress while {@code profiles}
+     * is {@code null}. Entries are compared by identity, so that a load only ever replaces its own marker.
+     */
+    private static final class Entry {
+
+        private final List<ProfileResponse> profiles;
+        private volatile EncodedProfiles encoded;
+
+        private Entry(List<ProfileResponse> profiles) {
+            this.profiles = profiles;
+        }
+
+    }
+
+}
@@ -0,0 +1,74 @@
+package com.mariuszilinskas.vsp.users.profile.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.mariuszilinskas.vsp.users.profile.dto.ProfileExportRow;
+import com.mariuszilinskas.vsp.users.profile.repository.ProfileRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Exports every profile as newline-delimited JSON, for analytics and reconciliation jobs.
+ * Profiles are read in fixed-size chunks, paging by profile ID rather than by offset, so each chunk is
+ * a short primary key range scan in its own read-only transaction, and no lock is held across the export.
+ * Chunks are projected straight into rows, without loading entities into a persistence context,
+ * so memory use depends on the chunk size only.
+ *
+ * @author Marius Zilinskas
+ */
+@Component
+public class ProfileExporter {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProfileExporter.class);
+    private static final byte[] LINE_SEPARATOR = {'\n'};
+
+    private final ProfileRepository profileRepository;
+    private final ObjectWriter rowWriter;
+    private final int chunkSize;
+
+    public ProfileExporter(
+            ProfileRepository profileRepository,
+            ObjectMapper objectMapper,
+            @Value("${profile.export.chunk-size}") int chunkSize
+    ) {
+        this.profileRepository = profileRepository;
+        this.rowWriter = objectMapper.writerFor(ProfileExportRow.class);
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Writes one JSON object per profile and line to the stream, in profile ID order, flushing after each chunk.
+     *
+     * @return the number of exported profiles
+     */
+    public long export(OutputStream out) throws IOException {
+        logger.info("Exporting all Profiles [chunkSize: {}]", chunkSize);
+        long startedAt = System.nanoTime();
+        long exported = 0;
+
+        List<ProfileExportRow> chunk = profileRepository.findExportRows(Limit.of(chunkSize));
+        while (!chunk.isEmpty()) {
+            for (ProfileExportRow row : chunk) {
+                out.write(rowWriter.writeValueAsBytes(row));
+                out.write(LINE_SEPARATOR);
+            }
+            out.flush();
+            exported += chunk.size();
+            chunk = chunk.size() < chunkSize
+                    ? List.of()
+                    : profileRepository.findExportRowsAfter(chunk.getLast().id(), Limit.of(chunkSize));
+        }
+
+        logger.info("Exported {} Profiles in {}", exported, Duration.ofNanos(System.nanoTime() - startedAt));
+        return exported;
+    }
+
+}
@@ -2,25 +2,37 @@ package com.mariuszilinskas.vsp.users.profile.service;
 
 import com.mariuszilinskas.vsp.users.profile.dto.CreateUserDefaultProfileRequest;
 import com.mariuszilinskas.vsp.users.profile.dto.CreateUserProfileRequest;
+import com.mariuszilinskas.vsp.users.profile.dto.EncodedProfiles;
+import com.mariuszilinskas.vsp.users.profile.dto.ProfileResponse;
 import com.mariuszilinskas.vsp.users.profile.model.Profile;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 public interface ProfileService {
 
     Profile createDefaultUserProfile(CreateUserDefaultProfileRequest request);
 
-    Profile createUserProfile(UUID userId, CreateUserProfileRequest request);
+    List<CreateUserDefaultProfileRequest> createDefaultUserProfiles(List<CreateUserDefaultProfileRequest> requests);
 
-    List<Profile> getAllUserProfiles(UUID userId);
+    ProfileResponse createUserProfile(UUID userId, CreateUserProfileRequest request);
 
-    Profile getUserProfile(UUID userId, UUID profileId);
+    List<ProfileResponse> getAllUserProfiles(UUID userId);
 
-    Profile updateUserProfile(UUID userId, UUID profileId, CreateUserProfileRequest request);
+    EncodedProfiles getEncodedUserProfiles(UUID userId);
+
+    Map<UUID, List<ProfileResponse>> getAllUserProfiles(Collection<UUID> userIds);
+
+    ProfileResponse getUserProfile(UUID userId, UUID profileId);
+
+    ProfileResponse updateUserProfile(UUID userId, UUID profileId, CreateUserProfileRequest request);
 
     void deleteUserProfile(UUID userId, UUID profileId);
 
     void deleteAllUserProfiles(UUID userId);
 
+    int deleteAllUserProfiles(Collection<UUID> userIds);
+
 }
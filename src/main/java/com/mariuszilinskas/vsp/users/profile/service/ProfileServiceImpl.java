@@ -2,16 +2,26 @@ package com.mariuszilinskas.vsp.users.profile.service;
 
 import com.mariuszilinskas.vsp.users.profile.dto.CreateUserDefaultProfileRequest;
 import com.mariuszilinskas.vsp.users.profile.dto.CreateUserProfileRequest;
+import com.mariuszilinskas.vsp.users.profile.dto.EncodedProfiles;
+import com.mariuszilinskas.vsp.users.profile.dto.ProfileResponse;
+import com.mariuszilinskas.vsp.users.profile.model.Avatar;
 import com.mariuszilinskas.vsp.users.profile.exception.EntityExistsException;
 import com.mariuszilinskas.vsp.users.profile.exception.ResourceNotFoundException;
 import com.mariuszilinskas.vsp.users.profile.model.Profile;
 import com.mariuszilinskas.vsp.users.profile.repository.ProfileRepository;
+import com.mariuszilinskas.vsp.users.profile.util.TransactionUtils;
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 /**
@@ -22,11 +32,14 @@ import java.util.UUID;
  */
 @Service
 @RequiredArgsConstructor
+@Timed(value = "profile.service", histogram = true)
 public class ProfileServiceImpl implements ProfileService {
 
     private static final Logger logger = LoggerFactory.getLogger(ProfileServiceImpl.class);
     private final ProfileRepository profileRepository;
     private final AvatarService avatarService;
+    private final ProfileCache profileCache;
+    private final CacheInvalidationService cacheInvalidationService;
 
     @Override
     public Profile createDefaultUserProfile(CreateUserDefaultProfileRequest request) {
@@ -35,82 +48,198 @@ public class ProfileServiceImpl implements ProfileService {
     }
 
     private Profile createDefaultProfile(CreateUserDefaultProfileRequest request) {
+        Profile savedProfile = profileRepository.save(buildDefaultProfile(request));
+        profilesChanged(request.userId());
+        return savedProfile;
+    }
+
+    private Profile buildDefaultProfile(CreateUserDefaultProfileRequest request) {
         Profile profile = new Profile();
         profile.setUserId(request.userId());
         profile.setProfileName(request.firstName());
         profile.setAvatar(avatarService.getRandomAvatar());
         profile.setKid(false);
-        return profileRepository.save(profile);
+        return profile;
     }
 
+    /**
+     * Creates default profiles for a batch of users with a single JDBC batch insert.
+     * If the batch violates a constraint, profiles are retried one by one so that
+     * a single bad request does not fail the rest of the batch.
+     *
+     * @return the requests whose profiles could not be created
+     */
     @Override
-    public Profile createUserProfile(UUID userId, CreateUserProfileRequest request) {
-        logger.info("Creating User Profile for User [userId: '{}']", userId);
-        checkNameExists(userId, request.profileName());
-        return populateNewUserProfileWithRequestData(userId, request);
-    }
+    public List<CreateUserDefaultProfileRequest> createDefaultUserProfiles(List<CreateUserDefaultProfileRequest> requests) {
+        logger.info("Creating default User Profiles for {} Users", requests.size());
+        List<Profile> profiles = new ArrayList<>(requests.size());
+        for (CreateUserDefaultProfileRequest request : requests) {
+            Profile profile = buildDefaultProfile(request);
+            profile.setId(UUID.randomUUID());
+            profiles.add(profile);
+        }
 
-    private void checkNameExists(UUID userId, String profileName) {
-        if (profileRepository.existsByUserIdAndProfileName(userId, profileName)) {
-            throw new EntityExistsException(Profile.class, "name", profileName);
+        List<CreateUserDefaultProfileRequest> failedRequests = new ArrayList<>();
+        try {
+            profileRepository.insertAll(profiles);
+        } catch (DataIntegrityViolationException ex) {
+            logger.warn("Batch insert of default User Profiles failed, retrying one by one: {}", ex.getMessage());
+            for (int i = 0; i < profiles.size(); i++) {
+                try {
+                    profileRepository.insertAll(List.of(profiles.get(i)));
+                } catch (DataIntegrityViolationException e) {
+                    logger.error("Failed to create default User Profile for User [userId: '{}']: {}",
+                            requests.get(i).userId(), e.getMessage());
+                    failedRequests.add(requests.get(i));
+                }
+            }
         }
+
+        profilesChanged(requests.stream()
+                .filter(request -> !failedRequests.contains(request))
+                .map(CreateUserDefaultProfileRequest::userId)
+                .toList());
+        return failedRequests;
     }
 
-    private Profile populateNewUserProfileWithRequestData(UUID userId, CreateUserProfileRequest request) {
+    /**
+     * Creates a profile with a single insert. Name uniqueness and the avatar are enforced by the database,
+     * the avatar is never loaded.
+     */
+    @Override
+    @Transactional
+    public ProfileResponse createUserProfile(UUID userId, CreateUserProfileRequest request) {
+        logger.info("Creating User Profile for User [userId: '{}']", userId);
+        Avatar avatar = avatarService.getAvatarReference(request.avatarId());
         Profile newProfile = new Profile();
         newProfile.setUserId(userId);
-        return applyUserProfileUpdate(newProfile, request);
+        newProfile.setProfileName(request.profileName());
+        newProfile.setAvatar(avatar);
+        newProfile.setKid(request.isKid());
+        try {
+            profileRepository.saveAndFlush(newProfile);
+        } catch (DataIntegrityViolationException ex) {
+            throw translateViolation(ex, request);
+        }
+        profilesChanged(userId);
+        return new ProfileResponse(newProfile.getId(), newProfile.getProfileName(), newProfile.isKid(),
+                request.avatarId(), avatarService.getAvatarUrl(request.avatarId()));
     }
 
     @Override
-    public List<Profile> getAllUserProfiles(UUID userId) {
+    public List<ProfileResponse> getAllUserProfiles(UUID userId) {
         logger.info("Getting All User Profiles for User [userId: '{}']", userId);
-        return profileRepository.findAllByUserId(userId);
+        return profileCache.getProfiles(userId);
     }
 
     @Override
-    public Profile getUserProfile(UUID userId, UUID profileId) {
-        logger.info("Getting User Profile for User [userId: '{}']", userId);
-        return findUserProfileByIdAndUserId(profileId, userId);
+    public EncodedProfiles getEncodedUserProfiles(UUID userId) {
+        logger.info("Getting All User Profiles encoded for User [userId: '{}']", userId);
+        return profileCache.getEncodedProfiles(userId);
     }
 
     @Override
-    public Profile updateUserProfile(UUID userId, UUID profileId, CreateUserProfileRequest request) {
-        logger.info("Creating User Profile for User [userId: '{}']", userId);
-        checkNameExists(userId, request.profileName(), profileId);
-        Profile profile = findUserProfileByIdAndUserId(profileId, userId);
-        return applyUserProfileUpdate(profile, request);
+    public Map<UUID, List<ProfileResponse>> getAllUserProfiles(Collection<UUID> userIds) {
+        logger.info("Getting All User Profiles for {} Users", userIds.size());
+        return profileCache.getProfiles(userIds);
+    }
+
+    @Override
+    public ProfileResponse getUserProfile(UUID userId, UUID profileId) {
+        logger.info("Getting User Profile for User [userId: '{}']", userId);
+        return profileCache.getProfiles(userId).stream()
+                .filter(profile -> profile.id().equals(profileId))
+                .findFirst()
+                .orElseThrow(() -> new ResourceNotFoundException(Profile.class, "id", profileId));
     }
 
-    private void checkNameExists(UUID userId, String profileName, UUID profileId) {
-        if (profileRepository.existsByUserIdAndProfileNameAndIdNot(userId, profileName, profileId)) {
-            throw new EntityExistsException(Profile.class, "name", profileName);
+    /**
+     * Updates a profile with a single update statement, without loading it or its avatar first.
+     * Name uniqueness and the avatar are enforced by the database.
+     */
+    @Override
+    @Transactional
+    public ProfileResponse updateUserProfile(UUID userId, UUID profileId, CreateUserProfileRequest request) {
+        logger.info("Updating User Profile for User [userId: '{}']", userId);
+        Avatar avatar = avatarService.getAvatarReference(request.avatarId());
+        int updatedProfiles;
+        try {
+            updatedProfiles = profileRepository.updateProfile(
+                    profileId, userId, request.profileName(), avatar, request.isKid());
+        } catch (DataIntegrityViolationException ex) {
+            throw translateViolation(ex, request);
+        }
+        if (updatedProfiles == 0) {
+            throw new ResourceNotFoundException(Profile.class, "id", profileId);
         }
+        profilesChanged(userId);
+        return new ProfileResponse(profileId, request.profileName(), request.isKid(),
+                request.avatarId(), avatarService.getAvatarUrl(request.avatarId()));
     }
 
-    private Profile applyUserProfileUpdate(Profile profile, CreateUserProfileRequest request) {
-        profile.setProfileName(request.profileName());
-        profile.setAvatar(avatarService.getAvatar(request.avatarId()));
-        profile.setKid(request.isKid());
-        return profileRepository.save(profile);
+    /**
+     * Translates a constraint violation on profile write: a duplicate name or a missing avatar.
+     * Any other violation is not the client's fault and is rethrown as is.
+     */
+    private RuntimeException translateViolation(DataIntegrityViolationException ex, CreateUserProfileRequest request) {
+        String message = ex.getMostSpecificCause().getMessage();
+        String constraint = message == null ? "" : message.toLowerCase();
+        if (constraint.contains(Profile.UNIQUE_NAME_CONSTRAINT)) {
+            return new EntityExistsException(Profile.class, "name", request.profileName());
+        }
+        if (constraint.contains(Profile.AVATAR_FOREIGN_KEY)) {
+            return new ResourceNotFoundException(Avatar.class, "id", request.avatarId());
+        }
+        return ex;
     }
 
+    /**
+     * Deletes a profile with a single delete statement, without loading it first.
+     */
     @Override
     public void deleteUserProfile(UUID userId, UUID profileId) {
         logger.info("Deleting User Profile for User [userId: '{}']", userId);
-        Profile profile = findUserProfileByIdAndUserId(profileId, userId);
-        profileRepository.delete(profile);
-    }
-
-    private Profile findUserProfileByIdAndUserId(UUID profileId, UUID userId) {
-        return profileRepository.findByIdAndUserId(profileId, userId)
-                .orElseThrow(() -> new ResourceNotFoundException(Profile.class, "id", profileId));
+        if (profileRepository.deleteProfile(profileId, userId) == 0) {
+            throw new ResourceNotFoundException(Profile.class, "id", profileId);
+        }
+        profilesChanged(userId);
     }
 
     @Override
     public void deleteAllUserProfiles(UUID userId) {
         logger.info("Deleting All User Profiles for User [userId: '{}']", userId);
         profileRepository.deleteAllByUserId(userId);
+        profilesChanged(userId);
+    }
+
+    /**
+     * Deletes the profiles of all given users with a single set-based delete.
+     *
+     * @return the number of deleted profiles
+     */
+    @Override
+    public int deleteAllUserProfiles(Collection<UUID> userIds) {
+        logger.info("Deleting All User Profiles for {} Users", userIds.size());
+        int deletedProfiles = profileRepository.deleteAllByUserIdIn(userIds);
+        profilesChanged(userIds);
+        return deletedProfiles;
+    }
+
+    /**
+     * Evicts the user's cached profile set once the write commits, here and on other instances.
+     */
+    private void profilesChanged(UUID userId) {
+        TransactionUtils.afterCommit(() -> {
+            profileCache.evict(userId);
+            cacheInvalidationService.profilesChanged(userId);
+        });
+    }
+
+    private void profilesChanged(Collection<UUID> userIds) {
+        TransactionUtils.afterCommit(() -> {
+            profileCache.evictAll(userIds);
+            cacheInvalidationService.profilesChanged(userIds);
+        });
     }
 
 }
@@ -0,0 +1,30 @@
+package com.mariuszilinskas.vsp.users.profile.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Generates URLs that point directly at the S3 bucket. This is the default strategy.
+ *
+ * @author Marius Zilinskas
+ */
+@Component
+@ConditionalOnProperty(name = "avatar.url.strategy", havingValue = "s3", matchIfMissing = true)
+public class S3ObjectUrlStrategy implements ObjectUrlStrategy {
+
+    private final String urlPrefix;
+
+    public S3ObjectUrlStrategy(
+            @Value("${aws.s3.avatarBucketName}") String avatarBucketName,
+            @Value("${aws.s3.region}") String region
+    ) {
+        this.urlPrefix = String.format("https://%s.s3.%s.amazonaws.com/", avatarBucketName, region);
+    }
+
+    @Override
+    public String getUrl(String objectKey) {
+        return urlPrefix + objectKey;
+    }
+
+}
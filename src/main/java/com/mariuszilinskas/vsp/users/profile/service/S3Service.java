@@ -1,13 +1,27 @@
 package com.mariuszilinskas.vsp.users.profile.service;
 
+import com.mariuszilinskas.vsp.users.profile.dto.S3UploadResult;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collection;
+import java.util.List;
 
 public interface S3Service {
 
     void uploadFile(String bucketName, String objectKey, MultipartFile file) throws IOException;
 
+    void uploadFile(String bucketName, String objectKey, byte[] content, String contentType);
+
+    S3UploadResult uploadStream(String bucketName, String objectKey, InputStream inputStream, String contentType);
+
+    InputStream downloadFile(String bucketName, String objectKey);
+
+    void copyFile(String bucketName, String sourceKey, String targetKey);
+
     void deleteFile(String objectKey, String bucketName);
 
+    List<String> deleteFiles(String bucketName, Collection<String> objectKeys);
+
 }
@@ -0,0 +1,60 @@
+package com.mariuszilinskas.vsp.users.profile.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.Base64;
+
+/**
+ * Generates CDN URLs carrying an HMAC-SHA256 signature of the object path, which the CDN verifies
+ * before serving the object. URLs are generated on every read, so rotating the signing key
+ * applies to all avatars at once.
+ *
+ * @author Marius Zilinskas
+ */
+@Component
+@ConditionalOnProperty(name = "avatar.url.strategy", havingValue = "signed-cdn")
+public class SignedCdnObjectUrlStrategy implements ObjectUrlStrategy {
+
+    private static final String ALGORITHM = "HmacSHA256";
+
+    private final String urlPrefix;
+    private final SecretKeySpec signingKey;
+
+    public SignedCdnObjectUrlStrategy(
+            @Value("${avatar.url.cdn-host}") String cdnHost,
+            @Value("${avatar.url.signing-key}") String signingKey
+    ) {
+        if (cdnHost == null || cdnHost.isBlank()) {
+            throw new IllegalArgumentException("avatar.url.cdn-host must be set for the signed-cdn strategy");
+        }
+        if (signingKey == null || signingKey.isBlank()) {
+            throw new IllegalArgumentException("avatar.url.signing-key must be set for the signed-cdn strategy");
+        }
+        this.urlPrefix = "https://" + cdnHost;
+        this.signingKey = new SecretKeySpec(signingKey.getBytes(StandardCharsets.UTF_8), ALGORITHM);
+    }
+
+    @Override
+    public String getUrl(String objectKey) {
+        String path = "/" + objectKey;
+        return urlPrefix + path + "?sig=" + sign(path);
+    }
+
+    private String sign(String path) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(signingKey);
+            byte[] signature = mac.doFinal(path.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(signature);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Failed to sign object URL", e);
+        }
+    }
+
+}
@@ -0,0 +1,22 @@
+package com.mariuszilinskas.vsp.users.profile.util;
+
+import org.springframework.util.DigestUtils;
+
+public abstract class ETagUtils {
+
+    private ETagUtils() {
+        // Private constructor to prevent instantiation
+    }
+
+    /**
+     * Digests a representation's content, so that every instance serving the same content derives the same ETag.
+     */
+    public static String digest(byte[] content) {
+        return DigestUtils.md5DigestAsHex(content);
+    }
+
+    public static String toETag(String resource, String digest) {
+        return "\"" + resource + "-" + digest + "\"";
+    }
+
+}
@@ -0,0 +1,33 @@
+package com.mariuszilinskas.vsp.users.profile.util;
+
+public abstract class HttpUtils {
+
+    private HttpUtils() {
+        // Private constructor to prevent instantiation
+    }
+
+    public static final String GZIP = "gzip";
+
+    /**
+     * Whether the {@code Accept-Encoding} header accepts gzip, explicitly or through {@code *}, with a non-zero quality.
+     */
+    public static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        boolean wildcard = false;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            String name = parts[0].trim();
+            boolean accepted = parts.length < 2 || !parts[1].trim().matches("(?i)q\\s*=\\s*0(\\.0{0,3})?");
+            if (name.equalsIgnoreCase(GZIP)) {
+                return accepted;
+            }
+            if (name.equals("*")) {
+                wildcard = accepted;
+            }
+        }
+        return wildcard;
+    }
+
+}
@@ -0,0 +1,41 @@
+-- Schema for avatars, their renditions and user profiles.
+-- Statements are idempotent so that databases previously managed by Hibernate can be baselined onto Flyway.
+
+CREATE TABLE IF NOT EXISTS avatars (
+    id          UUID         NOT NULL,
+    avatar_name VARCHAR(255) NOT NULL,
+    object_key  VARCHAR(255) NOT NULL,
+    image_url   VARCHAR(255) NOT NULL,
+    CONSTRAINT pk_avatars PRIMARY KEY (id)
+);
+
+-- existsByAvatarName
+CREATE UNIQUE INDEX IF NOT EXISTS uk_avatars_avatar_name ON avatars (avatar_name);
+
+-- findFirstByObjectKey, countByObjectKey
+CREATE INDEX IF NOT EXISTS idx_avatars_object_key ON avatars (object_key);
+
+CREATE TABLE IF NOT EXISTS avatar_renditions (
+    avatar_id  UUID         NOT NULL,
+    pixel_size INTEGER      NOT NULL,
+    format     VARCHAR(255) NOT NULL,
+    object_key VARCHAR(255) NOT NULL,
+    image_url  VARCHAR(255) NOT NULL,
+    CONSTRAINT fk_avatar_renditions_avatar FOREIGN KEY (avatar_id) REFERENCES avatars (id)
+);
+
+-- Loading the renditions of an avatar
+CREATE INDEX IF NOT EXISTS idx_avatar_renditions_avatar_id ON avatar_renditions (avatar_id);
+
+CREATE TABLE IF NOT EXISTS profiles (
+    id           UUID         NOT NULL,
+    user_id      UUID         NOT NULL,
+    profile_name VARCHAR(255) NOT NULL,
+    avatar_id    UUID,
+    is_kid       BOOLEAN      NOT NULL,
+    CONSTRAINT pk_profiles PRIMARY KEY (id),
+    CONSTRAINT fk_profiles_avatar FOREIGN KEY (avatar_id) REFERENCES avatars (id)
+);
+
+-- Foreign key checks when avatars are deleted
+CREATE INDEX IF NOT EXISTS idx_profiles_avatar_id ON profiles (avatar_id);
@@ -0,0 +1,14 @@
+-- S3 objects of deleted avatars, waiting to be deleted by the AvatarObjectReaper.
+
+CREATE TABLE avatar_object_deletions (
+    id                UUID                     NOT NULL,
+    object_key        VARCHAR(255)             NOT NULL,
+    source_object_key VARCHAR(255)             NOT NULL,
+    attempts          INTEGER                  NOT NULL,
+    next_attempt_at   TIMESTAMP WITH TIME ZONE NOT NULL,
+    created_at        TIMESTAMP WITH TIME ZONE NOT NULL,
+    CONSTRAINT pk_avatar_object_deletions PRIMARY KEY (id)
+);
+
+-- findByNextAttemptAtLessThanEqualOrderByNextAttemptAt
+CREATE INDEX idx_avatar_object_deletions_next_attempt_at ON avatar_object_deletions (next_attempt_at);
@@ -0,0 +1,9 @@
+-- Added and removed avatars, in catalog version order, for incremental catalog sync.
+
+CREATE TABLE avatar_catalog_changes (
+    version    BIGINT GENERATED BY DEFAULT AS IDENTITY,
+    avatar_id  UUID                     NOT NULL,
+    removed    BOOLEAN                  NOT NULL,
+    changed_at TIMESTAMP WITH TIME ZONE NOT NULL,
+    CONSTRAINT pk_avatar_catalog_changes PRIMARY KEY (version)
+);
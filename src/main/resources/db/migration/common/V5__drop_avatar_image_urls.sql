@@ -0,0 +1,5 @@
+-- Avatar URLs are generated from the object keys on read by the configured URL strategy,
+-- so that changing the strategy, CDN host or signing key applies to every avatar.
+
+ALTER TABLE avatar_renditions DROP COLUMN image_url;
+ALTER TABLE avatars DROP COLUMN image_url;
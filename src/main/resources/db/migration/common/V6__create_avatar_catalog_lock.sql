@@ -0,0 +1,9 @@
+-- Single row locked by every catalog change before its version is assigned,
+-- so that change versions commit in increasing order.
+
+CREATE TABLE avatar_catalog_lock (
+    id INT NOT NULL,
+    CONSTRAINT pk_avatar_catalog_lock PRIMARY KEY (id)
+);
+
+INSERT INTO avatar_catalog_lock (id) VALUES (1);
@@ -0,0 +1,4 @@
+-- Enforces unique profile names per user and serves every lookup by user_id:
+-- findRowsByUserId, findRowsByUserIdIn, deleteAllByUserId and deleteAllByUserIdIn.
+-- updateProfile and deleteProfile are served by the primary key.
+CREATE UNIQUE INDEX IF NOT EXISTS uk_profiles_user_id_profile_name ON profiles (user_id, profile_name);
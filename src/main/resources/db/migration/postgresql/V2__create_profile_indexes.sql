@@ -0,0 +1,6 @@
+-- Enforces unique profile names per user and serves every lookup by user_id:
+-- findRowsByUserId, findRowsByUserIdIn, deleteAllByUserId and deleteAllByUserIdIn.
+-- updateProfile and deleteProfile are served by the primary key.
+-- The included columns make the profile picker projection an index-only scan.
+CREATE UNIQUE INDEX IF NOT EXISTS uk_profiles_user_id_profile_name
+    ON profiles (user_id, profile_name) INCLUDE (id, avatar_id, is_kid);
@@ -0,0 +1,148 @@
+package com.mariuszilinskas.vsp.users.profile.consumer;
+
+import com.mariuszilinskas.vsp.users.profile.config.StatementCounter;
+import com.mariuszilinskas.vsp.users.profile.service.CacheInvalidationService;
+import com.mariuszilinskas.vsp.users.profile.service.ProfileService;
+import com.rabbitmq.client.Channel;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.UUID;
+
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class RabbitMQConsumerTest {
+
+    @Mock
+    private ProfileService profileService;
+
+    @Mock
+    private CacheInvalidationService cacheInvalidationService;
+
+    @Mock
+    private Channel channel;
+
+    private RabbitMQConsumer rabbitMQConsumer;
+
+    // ------------------------------------
+
+    @BeforeEach
+    void setUp() {
+        rabbitMQConsumer = new RabbitMQConsumer(profileService, cacheInvalidationService,
+                new Jackson2JsonMessageConverter(), Validation.buildDefaultValidatorFactory().getValidator(),
+                new SimpleMeterRegistry(), new StatementCounter());
+    }
+
+    // ------------------------------------
+
+    @Test
+    void testConsumeCreateDefaultUserProfileMessages_PoisonLastMessage_AcksUpToPreviousMessage() throws Exception {
+        // Arrange
+        List<Message> messages = List.of(
+                message(1, "{\"userId\":\"" + UUID.randomUUID() + "\",\"firstName\":\"John\"}"),
+                message(2, "{\"userId\":\"" + UUID.randomUUID() + "\",\"firstName\":\"Jane\"}"),
+                message(3, "not json")
+        );
+        when(profileService.createDefaultUserProfiles(anyList())).thenReturn(List.of());
+
+        // Act
+        rabbitMQConsumer.consumeCreateDefaultUserProfileMessages(messages, channel);
+
+        // Assert
+        verify(channel, times(1)).basicNack(3, false, false);
+        verify(channel, times(1)).basicAck(2, true);
+        verify(channel, never()).basicAck(eq(3L), anyBoolean());
+        verifyNoMoreInteractions(channel);
+    }
+
+    @Test
+    void testConsumeCreateDefaultUserProfileMessages_PoisonLastMessageAndBatchFails_RequeuesUpToPreviousMessage()
+            throws Exception {
+        // Arrange
+        List<Message> messages = List.of(
+                message(1, "{\"userId\":\"" + UUID.randomUUID() + "\",\"firstName\":\"John\"}"),
+                message(2, "{\"firstName\":\"Jane\"}")
+        );
+        when(profileService.createDefaultUserProfiles(anyList())).thenThrow(new RuntimeException("Database down"));
+
+        // Act
+        rabbitMQConsumer.consumeCreateDefaultUserProfileMessages(messages, channel);
+
+        // Assert
+        verify(channel, times(1)).basicNack(2, false, false);
+        verify(channel, times(1)).basicNack(1, true, true);
+        verifyNoMoreInteractions(channel);
+    }
+
+    @Test
+    void testConsumeCreateDefaultUserProfileMessages_AllMessagesRejected_SettlesNothingElse() throws Exception {
+        // Arrange
+        List<Message> messages = List.of(message(1, "not json"), message(2, "{}"));
+
+        // Act
+        rabbitMQConsumer.consumeCreateDefaultUserProfileMessages(messages, channel);
+
+        // Assert
+        verify(channel, times(1)).basicNack(1, false, false);
+        verify(channel, times(1)).basicNack(2, false, false);
+        verifyNoMoreInteractions(channel);
+        verify(profileService, never()).createDefaultUserProfiles(anyList());
+    }
+
+    @Test
+    void testConsumeDeleteUserDataMessages_PoisonLastMessage_AcksUpToPreviousMessage() throws Exception {
+        // Arrange
+        List<Message> messages = List.of(
+                message(1, "\"" + UUID.randomUUID() + "\""),
+                message(2, "\"" + UUID.randomUUID() + "\""),
+                message(3, "not a uuid")
+        );
+        when(profileService.deleteAllUserProfiles(anyCollection())).thenReturn(2);
+
+        // Act
+        rabbitMQConsumer.consumeDeleteUserDataMessages(messages, channel);
+
+        // Assert
+        verify(channel, times(1)).basicNack(3, false, false);
+        verify(channel, times(1)).basicAck(2, true);
+        verify(channel, never()).basicAck(eq(3L), anyBoolean());
+        verifyNoMoreInteractions(channel);
+    }
+
+    @Test
+    void testConsumeDeleteUserDataMessages_PoisonLastMessageAndDeleteFails_RequeuesUpToPreviousMessage()
+            throws Exception {
+        // Arrange
+        List<Message> messages = List.of(message(1, "\"" + UUID.randomUUID() + "\""), message(2, "not a uuid"));
+        when(profileService.deleteAllUserProfiles(anyCollection())).thenThrow(new RuntimeException("Database down"));
+
+        // Act
+        rabbitMQConsumer.consumeDeleteUserDataMessages(messages, channel);
+
+        // Assert
+        verify(channel, times(1)).basicNack(2, false, false);
+        verify(channel, times(1)).basicNack(1, true, true);
+        verifyNoMoreInteractions(channel);
+    }
+
+    // ------------------------------------
+
+    private Message message(long deliveryTag, String body) {
+        MessageProperties properties = new MessageProperties();
+        properties.setContentType(MessageProperties.CONTENT_TYPE_JSON);
+        properties.setDeliveryTag(deliveryTag);
+        return new Message(body.getBytes(StandardCharsets.UTF_8), properties);
+    }
+
+}
@@ -0,0 +1,138 @@
+package com.mariuszilinskas.vsp.users.profile.repository;
+
+import com.mariuszilinskas.vsp.users.profile.dto.ProfileExportRow;
+import com.mariuszilinskas.vsp.users.profile.dto.UserProfileRow;
+import com.mariuszilinskas.vsp.users.profile.model.Avatar;
+import com.mariuszilinskas.vsp.users.profile.model.AvatarRendition;
+import com.mariuszilinskas.vsp.users.profile.model.Profile;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Limit;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pins the number of SQL statements issued by the profile read and delete paths.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+public class ProfileRepositoryTest {
+
+    @Autowired
+    private ProfileRepository profileRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    private final UUID userId = UUID.randomUUID();
+    private final List<Profile> profiles = new ArrayList<>();
+
+    // ------------------------------------
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        for (int i = 0; i < 3; i++) {
+            Avatar avatar = new Avatar();
+            avatar.setAvatarName("Avatar " + i);
+            avatar.setObjectKey("avatar-" + i + ".png");
+            avatar.setRenditions(new ArrayList<>(List.of(
+                    new AvatarRendition(64, "png", "avatar-" + i + "-64.png"),
+                    new AvatarRendition(128, "png", "avatar-" + i + "-128.png")
+            )));
+            entityManager.persist(avatar);
+
+            Profile profile = new Profile();
+            profile.setUserId(userId);
+            profile.setProfileName("Profile " + i);
+            profile.setAvatar(avatar);
+            profiles.add(entityManager.persist(profile));
+        }
+        entityManager.flush();
+        entityManager.clear();
+        statistics.clear();
+    }
+
+    // ------------------------------------
+
+    @Test
+    void testFindRowsByUserId_SingleStatementWithoutEntities() {
+        // Act
+        List<UserProfileRow> response = profileRepository.findRowsByUserId(userId);
+
+        // Assert
+        assertEquals(3, response.size());
+        assertTrue(response.stream().allMatch(row -> row.avatarObjectKey().startsWith("avatar-")));
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    void testFindRowsByUserIdIn_SingleStatementWithoutEntities() {
+        // Act
+        List<UserProfileRow> response = profileRepository.findRowsByUserIdIn(Set.of(userId, UUID.randomUUID()));
+
+        // Assert
+        assertEquals(3, response.size());
+        assertTrue(response.stream().allMatch(row -> row.userId().equals(userId) && row.avatarObjectKey() != null));
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    void testFindExportRows_KeysetChunksWithoutEntities() {
+        // Act
+        List<ProfileExportRow> firstChunk = profileRepository.findExportRows(Limit.of(2));
+        List<ProfileExportRow> lastChunk = profileRepository.findExportRowsAfter(firstChunk.getLast().id(), Limit.of(2));
+
+        // Assert
+        assertEquals(2, firstChunk.size());
+        assertEquals(1, lastChunk.size());
+        assertEquals(3, Stream.concat(firstChunk.stream(), lastChunk.stream()).map(ProfileExportRow::id).distinct().count());
+        assertTrue(lastChunk.stream().allMatch(row -> row.userId().equals(userId) && row.avatarId() != null));
+        assertEquals(2, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    void testDeleteProfile_SingleStatementWithoutEntities() {
+        // Act
+        int deletedProfiles = profileRepository.deleteProfile(profiles.get(0).getId(), userId);
+        int deletedOtherUsersProfiles = profileRepository.deleteProfile(profiles.get(1).getId(), UUID.randomUUID());
+
+        // Assert
+        assertEquals(1, deletedProfiles);
+        assertEquals(0, deletedOtherUsersProfiles);
+        assertEquals(2, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    void testDeleteAllByUserId_SingleStatement() {
+        // Act
+        int deletedProfiles = profileRepository.deleteAllByUserId(userId);
+
+        // Assert
+        assertEquals(3, deletedProfiles);
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+}
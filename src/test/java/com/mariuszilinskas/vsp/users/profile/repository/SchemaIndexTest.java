@@ -0,0 +1,110 @@
+package com.mariuszilinskas.vsp.users.profile.repository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Asserts that the Flyway-managed schema has an index for every repository query,
+ * using the query plans H2 reports for equivalent SQL.
+ */
+@DataJpaTest
+public class SchemaIndexTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final String id = "'" + UUID.randomUUID() + "'";
+
+    // ------------------------------------
+
+    private String explain(String sql) {
+        return jdbcTemplate.queryForObject("EXPLAIN " + sql, String.class).toUpperCase();
+    }
+
+    private void assertUsesIndex(String indexName, String sql) {
+        String plan = explain(sql);
+        assertTrue(plan.contains(indexName.toUpperCase()), () -> "Expected " + indexName + " in plan: " + plan);
+        assertFalse(plan.contains("TABLESCAN"), () -> "Unexpected table scan in plan: " + plan);
+    }
+
+    // ------------------------------------
+
+    @Test
+    void testProfilesByUserId_UsesIndex() {
+        assertUsesIndex("uk_profiles_user_id_profile_name",
+                "SELECT id, profile_name, is_kid, avatar_id FROM profiles WHERE user_id = " + id);
+        assertUsesIndex("uk_profiles_user_id_profile_name",
+                "DELETE FROM profiles WHERE user_id = " + id);
+    }
+
+    @Test
+    void testProfileByUserIdAndName_UsesIndex() {
+        assertUsesIndex("uk_profiles_user_id_profile_name",
+                "SELECT id FROM profiles WHERE user_id = " + id + " AND profile_name = 'Name'");
+    }
+
+    @Test
+    void testProfileByIdAndUserId_UsesPrimaryKey() {
+        // H2 names primary key indexes PRIMARY_KEY_<suffix>
+        assertUsesIndex("primary_key",
+                "SELECT id FROM profiles WHERE id = " + id + " AND user_id = " + id);
+    }
+
+    @Test
+    void testProfileExportChunk_UsesPrimaryKey() {
+        assertUsesIndex("primary_key",
+                "SELECT id, user_id, profile_name, is_kid, avatar_id FROM profiles WHERE id > " + id +
+                        " ORDER BY id LIMIT 1000");
+    }
+
+    @Test
+    void testProfilesByAvatarId_UsesIndex() {
+        assertUsesIndex("idx_profiles_avatar_id",
+                "SELECT id FROM profiles WHERE avatar_id = " + id);
+    }
+
+    @Test
+    void testAvatarByName_UsesIndex() {
+        assertUsesIndex("uk_avatars_avatar_name",
+                "SELECT id FROM avatars WHERE avatar_name = 'Name'");
+    }
+
+    @Test
+    void testAvatarNamesAfter_UsesIndex() {
+        assertUsesIndex("uk_avatars_avatar_name",
+                "SELECT avatar_name FROM avatars WHERE avatar_name > 'Name' ORDER BY avatar_name LIMIT 101");
+    }
+
+    @Test
+    void testAvatarByObjectKey_UsesIndex() {
+        assertUsesIndex("idx_avatars_object_key",
+                "SELECT COUNT(*) FROM avatars WHERE object_key = 'key.png'");
+    }
+
+    @Test
+    void testRenditionsByAvatarId_UsesIndex() {
+        assertUsesIndex("idx_avatar_renditions_avatar_id",
+                "SELECT pixel_size, format, object_key FROM avatar_renditions WHERE avatar_id = " + id);
+    }
+
+    @Test
+    void testDueAvatarObjectDeletions_UsesIndex() {
+        assertUsesIndex("idx_avatar_object_deletions_next_attempt_at",
+                "SELECT id FROM avatar_object_deletions WHERE next_attempt_at <= CURRENT_TIMESTAMP " +
+                        "ORDER BY next_attempt_at LIMIT 1000");
+    }
+
+    @Test
+    void testAvatarCatalogChangesSince_UsesPrimaryKey() {
+        assertUsesIndex("primary_key",
+                "SELECT version, avatar_id, removed FROM avatar_catalog_changes WHERE version > 5 " +
+                        "ORDER BY version LIMIT 501");
+    }
+
+}
@@ -0,0 +1,208 @@
+package com.mariuszilinskas.vsp.users.profile.service;
+
+import com.mariuszilinskas.vsp.users.profile.dto.AvatarCatalogDelta;
+import com.mariuszilinskas.vsp.users.profile.dto.AvatarCatalogRow;
+import com.mariuszilinskas.vsp.users.profile.model.AvatarCatalogChange;
+import com.mariuszilinskas.vsp.users.profile.repository.AvatarCatalogChangeRepository;
+import com.mariuszilinskas.vsp.users.profile.repository.AvatarRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class AvatarCatalogChangeLogTest {
+
+    @Mock
+    private AvatarCatalogChangeRepository changeRepository;
+
+    @Mock
+    private AvatarRepository avatarRepository;
+
+    private AvatarCatalogChangeLog avatarCatalogChangeLog;
+
+    private final UUID addedAvatarId = UUID.randomUUID();
+    private final UUID removedAvatarId = UUID.randomUUID();
+
+    // ------------------------------------
+
+    @BeforeEach
+    void setUp() {
+        avatarCatalogChangeLog = new AvatarCatalogChangeLog(changeRepository, avatarRepository,
+                new CdnObjectUrlStrategy("cdn.example.com"), new SimpleMeterRegistry(), 2, Duration.ofDays(30));
+    }
+
+    private AvatarCatalogChange change(long version, UUID avatarId, boolean removed) {
+        AvatarCatalogChange change = new AvatarCatalogChange(avatarId, removed, Instant.now());
+        change.setVersion(version);
+        return change;
+    }
+
+    // ------------------------------------
+
+    @Test
+    void testGetChangesSince_ReturnsAddedAndRemovedAvatars() {
+        // Arrange
+        when(changeRepository.findEarliestVersion()).thenReturn(Optional.of(1L));
+        when(changeRepository.findByVersionGreaterThanOrderByVersion(5L, Limit.of(3))).thenReturn(List.of(
+                change(6, addedAvatarId, false),
+                change(7, removedAvatarId, true)));
+        when(avatarRepository.findCatalogByIdIn(Set.of(addedAvatarId, removedAvatarId))).thenReturn(List.of(
+                new AvatarCatalogRow(addedAvatarId, "Added", "added.png", null, null, null)));
+
+        // Act
+        AvatarCatalogDelta response = avatarCatalogChangeLog.getChangesSince(5L);
+
+        // Assert
+        assertFalse(response.snapshot());
+        assertEquals(7, response.version());
+        assertEquals(1, response.avatars().size());
+        assertEquals(addedAvatarId, response.avatars().get(0).id());
+        assertEquals("https://cdn.example.com/added.png", response.avatars().get(0).imageUrl());
+        assertEquals(List.of(removedAvatarId), response.removedAvatarIds());
+        verify(avatarRepository, never()).findCatalog();
+    }
+
+    @Test
+    void testGetChangesSince_UpToDate_ReturnsNoChanges() {
+        // Arrange
+        when(changeRepository.findEarliestVersion()).thenReturn(Optional.of(1L));
+        when(changeRepository.findByVersionGreaterThanOrderByVersion(7L, Limit.of(3))).thenReturn(List.of());
+        when(changeRepository.findLatestVersion()).thenReturn(Optional.of(7L));
+
+        // Act
+        AvatarCatalogDelta response = avatarCatalogChangeLog.getChangesSince(7L);
+
+        // Assert
+        assertFalse(response.snapshot());
+        assertEquals(7, response.version());
+        assertTrue(response.avatars().isEmpty());
+        assertTrue(response.removedAvatarIds().isEmpty());
+        verifyNoInteractions(avatarRepository);
+    }
+
+    @Test
+    void testGetChangesSince_NoVersion_ReturnsSnapshot() {
+        // Arrange
+        when(changeRepository.findEarliestVersion()).thenReturn(Optional.of(1L));
+        when(changeRepository.findLatestVersion()).thenReturn(Optional.of(7L));
+        when(avatarRepository.findCatalog()).thenReturn(List.of(
+                new AvatarCatalogRow(addedAvatarId, "Added", "added.png", null, null, null)));
+
+        // Act
+        AvatarCatalogDelta response = avatarCatalogChangeLog.getChangesSince(null);
+
+        // Assert
+        assertTrue(response.snapshot());
+        assertEquals(7, response.version());
+        assertEquals(1, response.avatars().size());
+        verify(changeRepository, never()).findByVersionGreaterThanOrderByVersion(anyLong(), any(Limit.class));
+    }
+
+    @Test
+    void testGetChangesSince_PrunedVersion_ReturnsSnapshot() {
+        // Arrange
+        when(changeRepository.findEarliestVersion()).thenReturn(Optional.of(10L));
+        when(changeRepository.findLatestVersion()).thenReturn(Optional.of(12L));
+        when(avatarRepository.findCatalog()).thenReturn(List.of());
+
+        // Act
+        AvatarCatalogDelta response = avatarCatalogChangeLog.getChangesSince(5L);
+
+        // Assert
+        assertTrue(response.snapshot());
+        assertEquals(12, response.version());
+    }
+
+    @Test
+    void testGetChangesSince_TooManyChanges_ReturnsSnapshot() {
+        // Arrange
+        when(changeRepository.findEarliestVersion()).thenReturn(Optional.of(1L));
+        when(changeRepository.findByVersionGreaterThanOrderByVersion(1L, Limit.of(3))).thenReturn(List.of(
+                change(2, addedAvatarId, false),
+                change(3, removedAvatarId, false),
+                change(4, removedAvatarId, true)));
+        when(changeRepository.findLatestVersion()).thenReturn(Optional.of(4L));
+        when(avatarRepository.findCatalog()).thenReturn(List.of());
+
+        // Act
+        AvatarCatalogDelta response = avatarCatalogChangeLog.getChangesSince(1L);
+
+        // Assert
+        assertTrue(response.snapshot());
+        assertEquals(4, response.version());
+        verify(avatarRepository, never()).findCatalogByIdIn(anyCollection());
+    }
+
+    @Test
+    void testGetChangesSince_UnknownVersion_ReturnsSnapshot() {
+        // Arrange
+        when(changeRepository.findEarliestVersion()).thenReturn(Optional.of(1L));
+        when(changeRepository.findByVersionGreaterThanOrderByVersion(99L, Limit.of(3))).thenReturn(List.of());
+        when(changeRepository.findLatestVersion()).thenReturn(Optional.of(7L));
+        when(avatarRepository.findCatalog()).thenReturn(List.of());
+
+        // Act
+        AvatarCatalogDelta response = avatarCatalogChangeLog.getChangesSince(99L);
+
+        // Assert
+        assertTrue(response.snapshot());
+        assertEquals(7, response.version());
+    }
+
+    // ------------------------------------
+
+    @Test
+    void testRecordAdded_LocksCatalogBeforeAssigningVersion() {
+        // Act
+        avatarCatalogChangeLog.recordAdded(addedAvatarId);
+
+        // Assert
+        InOrder inOrder = inOrder(avatarRepository, changeRepository);
+        inOrder.verify(avatarRepository).lockCatalog();
+        inOrder.verify(changeRepository).save(argThat(change ->
+                addedAvatarId.equals(change.getAvatarId()) && !change.isRemoved()));
+    }
+
+    @Test
+    void testRecordRemoved_LocksCatalogBeforeAssigningVersion() {
+        // Act
+        avatarCatalogChangeLog.recordRemoved(removedAvatarId);
+
+        // Assert
+        InOrder inOrder = inOrder(avatarRepository, changeRepository);
+        inOrder.verify(avatarRepository).lockCatalog();
+        inOrder.verify(changeRepository).save(argThat(change ->
+                removedAvatarId.equals(change.getAvatarId()) && change.isRemoved()));
+    }
+
+    // ------------------------------------
+
+    @Test
+    void testPrune_DeletesChangesOlderThanRetention() {
+        // Arrange
+        when(changeRepository.deleteChangesBefore(any(Instant.class))).thenReturn(3);
+        Instant before = Instant.now().minus(Duration.ofDays(30));
+
+        // Act
+        avatarCatalogChangeLog.prune();
+
+        // Assert
+        verify(changeRepository, times(1)).deleteChangesBefore(argThat(cutoff -> !cutoff.isBefore(before)));
+    }
+
+}
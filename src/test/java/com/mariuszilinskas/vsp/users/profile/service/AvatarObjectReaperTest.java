@@ -0,0 +1,216 @@
+package com.mariuszilinskas.vsp.users.profile.service;
+
+import com.mariuszilinskas.vsp.users.profile.model.Avatar;
+import com.mariuszilinskas.vsp.users.profile.model.AvatarObjectDeletion;
+import com.mariuszilinskas.vsp.users.profile.model.AvatarRendition;
+import com.mariuszilinskas.vsp.users.profile.repository.AvatarObjectDeletionRepository;
+import com.mariuszilinskas.vsp.users.profile.repository.AvatarRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class AvatarObjectReaperTest {
+
+    @Mock
+    private AvatarObjectDeletionRepository deletionRepository;
+
+    @Mock
+    private AvatarRepository avatarRepository;
+
+    @Mock
+    private S3Service s3Service;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private AvatarObjectReaper avatarObjectReaper;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final String bucketName = "bucket-name";
+    private final AvatarObjectDeletion original = new AvatarObjectDeletion("key.png", "key.png", Instant.now());
+    private final AvatarObjectDeletion rendition = new AvatarObjectDeletion("key-64.png", "key.png", Instant.now());
+
+    // ------------------------------------
+
+    @BeforeEach
+    void setUp() {
+        avatarObjectReaper = new AvatarObjectReaper(deletionRepository, avatarRepository, s3Service,
+                new TransactionTemplate(transactionManager), meterRegistry, bucketName, 2, Duration.ofSeconds(30),
+                Duration.ofMinutes(5));
+    }
+
+    // ------------------------------------
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testScheduleDeletion_RecordsOriginalAndRenditions() {
+        // Arrange
+        Avatar avatar = new Avatar();
+        avatar.setObjectKey("key.png");
+        avatar.setRenditions(List.of(new AvatarRendition(64, "png", "key-64.png")));
+        ArgumentCaptor<List<AvatarObjectDeletion>> captor = ArgumentCaptor.forClass(List.class);
+
+        // Act
+        avatarObjectReaper.scheduleDeletion(avatar);
+
+        // Assert
+        verify(deletionRepository, times(1)).saveAll(captor.capture());
+        assertEquals(List.of("key.png", "key-64.png"),
+                captor.getValue().stream().map(AvatarObjectDeletion::getObjectKey).toList());
+        assertTrue(captor.getValue().stream().allMatch(deletion -> deletion.getSourceObjectKey().equals("key.png")));
+        assertEquals(2, meterRegistry.get("avatar.deletion.backlog").gauge().value());
+        verifyNoInteractions(s3Service);
+    }
+
+    @Test
+    void testScheduleDeletion_RecordsSingleObject() {
+        // Arrange
+        ArgumentCaptor<AvatarObjectDeletion> captor = ArgumentCaptor.forClass(AvatarObjectDeletion.class);
+
+        // Act
+        avatarObjectReaper.scheduleDeletion("staging/key.png");
+
+        // Assert
+        verify(deletionRepository, times(1)).save(captor.capture());
+        assertEquals("staging/key.png", captor.getValue().getObjectKey());
+        assertEquals("staging/key.png", captor.getValue().getSourceObjectKey());
+        assertEquals(1, meterRegistry.get("avatar.deletion.backlog").gauge().value());
+        verifyNoInteractions(s3Service);
+    }
+
+    @Test
+    void testReap_DeletesDueObjectsInOneRequest() {
+        // Arrange
+        when(deletionRepository.findByNextAttemptAtLessThanEqualOrderByNextAttemptAt(any(Instant.class), eq(Limit.of(2))))
+                .thenReturn(List.of(original, rendition))
+                .thenReturn(List.of());
+        when(s3Service.deleteFiles(bucketName, List.of("key.png", "key-64.png"))).thenReturn(List.of());
+
+        // Act
+        avatarObjectReaper.reap();
+
+        // Assert
+        verify(s3Service, times(1)).deleteFiles(bucketName, List.of("key.png", "key-64.png"));
+        verify(deletionRepository, times(1)).deleteAllInBatch(List.of(original, rendition));
+        verify(deletionRepository, never()).saveAll(anyList());
+        assertEquals(2, meterRegistry.get("avatar.deletion.objects").tag("result", "deleted").counter().count());
+    }
+
+    @Test
+    void testReap_ChecksAndDeletesUnderCatalogLock() {
+        // Arrange
+        when(deletionRepository.findByNextAttemptAtLessThanEqualOrderByNextAttemptAt(any(Instant.class), eq(Limit.of(2))))
+                .thenReturn(List.of(original));
+        when(avatarRepository.findObjectKeysIn(Set.of("key.png"))).thenReturn(Set.of());
+        when(s3Service.deleteFiles(bucketName, List.of("key.png"))).thenReturn(List.of());
+
+        // Act
+        avatarObjectReaper.reap();
+
+        // Assert
+        // An avatar created with the same image waits for the lock, so it is either seen by the check
+        // or uploads its image again after the deletion commits
+        InOrder inOrder = inOrder(transactionManager, avatarRepository, deletionRepository, s3Service);
+        inOrder.verify(transactionManager).getTransaction(any());
+        inOrder.verify(avatarRepository).lockCatalog();
+        inOrder.verify(deletionRepository).findByNextAttemptAtLessThanEqualOrderByNextAttemptAt(any(Instant.class), eq(Limit.of(2)));
+        inOrder.verify(avatarRepository).findObjectKeysIn(Set.of("key.png"));
+        inOrder.verify(s3Service).deleteFiles(bucketName, List.of("key.png"));
+        inOrder.verify(deletionRepository).deleteAllInBatch(List.of(original));
+        inOrder.verify(transactionManager).commit(any());
+    }
+
+    @Test
+    void testReap_ReschedulesFailedObjects() {
+        // Arrange
+        when(deletionRepository.findByNextAttemptAtLessThanEqualOrderByNextAttemptAt(any(Instant.class), eq(Limit.of(2))))
+                .thenReturn(List.of(original, rendition))
+                .thenReturn(List.of());
+        when(s3Service.deleteFiles(eq(bucketName), anyList())).thenReturn(List.of("key-64.png"));
+        Instant before = Instant.now();
+
+        // Act
+        avatarObjectReaper.reap();
+
+        // Assert
+        verify(deletionRepository, times(1)).deleteAllInBatch(List.of(original));
+        verify(deletionRepository, times(1)).saveAll(List.of(rendition));
+        assertEquals(1, rendition.getAttempts());
+        assertFalse(rendition.getNextAttemptAt().isBefore(before.plusSeconds(30)));
+        assertEquals(1, meterRegistry.get("avatar.deletion.objects").tag("result", "failed").counter().count());
+    }
+
+    @Test
+    void testReap_S3Error_ReschedulesAll() {
+        // Arrange
+        when(deletionRepository.findByNextAttemptAtLessThanEqualOrderByNextAttemptAt(any(Instant.class), eq(Limit.of(2))))
+                .thenReturn(List.of(original))
+                .thenReturn(List.of());
+        when(s3Service.deleteFiles(eq(bucketName), anyList())).thenThrow(new RuntimeException("S3 Error"));
+
+        // Act
+        avatarObjectReaper.reap();
+
+        // Assert
+        verify(deletionRepository, times(1)).deleteAllInBatch(List.of());
+        verify(deletionRepository, times(1)).saveAll(List.of(original));
+        assertEquals(1, original.getAttempts());
+    }
+
+    @Test
+    void testReap_ReuploadedObject_Skipped() {
+        // Arrange
+        when(deletionRepository.findByNextAttemptAtLessThanEqualOrderByNextAttemptAt(any(Instant.class), eq(Limit.of(2))))
+                .thenReturn(List.of(original));
+        when(avatarRepository.findObjectKeysIn(Set.of("key.png"))).thenReturn(Set.of("key.png"));
+
+        // Act
+        avatarObjectReaper.reap();
+
+        // Assert
+        verifyNoInteractions(s3Service);
+        verify(deletionRepository, times(1)).deleteAllInBatch(List.of(original));
+        assertEquals(1, meterRegistry.get("avatar.deletion.objects").tag("result", "skipped").counter().count());
+    }
+
+    @Test
+    void testReap_RefreshesBacklog() {
+        // Arrange
+        when(deletionRepository.findByNextAttemptAtLessThanEqualOrderByNextAttemptAt(any(Instant.class), any(Limit.class)))
+                .thenReturn(List.of());
+        when(deletionRepository.count()).thenReturn(7L);
+
+        // Act
+        avatarObjectReaper.reap();
+
+        // Assert
+        assertEquals(7, meterRegistry.get("avatar.deletion.backlog").gauge().value());
+    }
+
+    @Test
+    void testBackoff_DoublesUpToMaximum() {
+        assertEquals(Duration.ofSeconds(30), avatarObjectReaper.backoff(1));
+        assertEquals(Duration.ofSeconds(60), avatarObjectReaper.backoff(2));
+        assertEquals(Duration.ofSeconds(120), avatarObjectReaper.backoff(3));
+        assertEquals(Duration.ofMinutes(5), avatarObjectReaper.backoff(10));
+        assertEquals(Duration.ofMinutes(5), avatarObjectReaper.backoff(100));
+    }
+
+}
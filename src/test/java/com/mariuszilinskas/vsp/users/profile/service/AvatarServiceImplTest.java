@@ -1,28 +1,48 @@
 package com.mariuszilinskas.vsp.users.profile.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mariuszilinskas.vsp.users.profile.dto.AvatarCatalogRow;
+import com.mariuszilinskas.vsp.users.profile.dto.AvatarPage;
+import com.mariuszilinskas.vsp.users.profile.dto.AvatarResponse;
 import com.mariuszilinskas.vsp.users.profile.dto.CreateAvatarRequest;
+import com.mariuszilinskas.vsp.users.profile.dto.CreateAvatarStreamRequest;
+import com.mariuszilinskas.vsp.users.profile.dto.EncodedAvatarCatalog;
+import com.mariuszilinskas.vsp.users.profile.dto.ImageRendition;
+import com.mariuszilinskas.vsp.users.profile.dto.S3UploadResult;
 import com.mariuszilinskas.vsp.users.profile.exception.EntityExistsException;
 import com.mariuszilinskas.vsp.users.profile.exception.FileUploadException;
 import com.mariuszilinskas.vsp.users.profile.exception.IncorrectFileException;
+import com.mariuszilinskas.vsp.users.profile.exception.InvalidCursorException;
 import com.mariuszilinskas.vsp.users.profile.exception.ResourceNotFoundException;
 import com.mariuszilinskas.vsp.users.profile.model.Avatar;
+import com.mariuszilinskas.vsp.users.profile.model.AvatarRendition;
 import com.mariuszilinskas.vsp.users.profile.repository.AvatarRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
-import org.mockito.InjectMocks;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
 import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.lang.reflect.Field;
+import java.time.Duration;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.zip.GZIPInputStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -36,9 +56,25 @@ public class AvatarServiceImplTest {
     @Mock
     private S3Service s3Service;
 
-    @InjectMocks
+    @Mock
+    private CacheInvalidationService cacheInvalidationService;
+
+    @Mock
+    private ImageService imageService;
+
+    @Mock
+    private AvatarObjectReaper avatarObjectReaper;
+
+    @Mock
+    private AvatarCatalogChangeLog avatarCatalogChangeLog;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
     private AvatarServiceImpl avatarService;
 
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ObjectUrlStrategy objectUrlStrategy = new S3ObjectUrlStrategy("bucket-name", "region-name");
     private final UUID avatarId = UUID.randomUUID();
     private final Avatar avatar = new Avatar();
     private final Avatar avatar2 = new Avatar();
@@ -49,18 +85,21 @@ public class AvatarServiceImplTest {
 
     @BeforeEach
     void setUp() throws NoSuchFieldException, IllegalAccessException {
+        AvatarCatalogCache avatarCatalogCache = new AvatarCatalogCache(
+                avatarRepository, new SimpleMeterRegistry(), objectMapper, objectUrlStrategy, 100, Duration.ofMinutes(1));
+        avatarService = new AvatarServiceImpl(avatarRepository, avatarCatalogCache, s3Service, imageService,
+                objectUrlStrategy, cacheInvalidationService, avatarObjectReaper, avatarCatalogChangeLog,
+                new TransactionTemplate(transactionManager));
+
         setPrivateField(avatarService, "avatarBucketName", "bucket-name");
-        setPrivateField(avatarService, "region", "region-name");
 
         avatar.setId(avatarId);
         avatar.setAvatarName("Default");
         avatar.setObjectKey("test-avatar-key-1");
-        avatar.setImageUrl("http://example.com/test-avatar-key-1.jpg");
 
         avatar2.setId(UUID.randomUUID());
         avatar2.setAvatarName("Kids");
         avatar2.setObjectKey("test-avatar-key-2");
-        avatar2.setImageUrl("http://example.com/test-avatar-key-2.jpg");
 
         multipartFile = new MockMultipartFile("file", "filename.jpg", "image/jpeg", "some content".getBytes());
         createRequest = new CreateAvatarRequest(avatar.getAvatarName(), multipartFile);
@@ -87,19 +126,153 @@ public class AvatarServiceImplTest {
         when(avatarRepository.save(captor.capture())).thenReturn(avatar);
 
         // Act
-        Avatar response = avatarService.createAvatar(createRequest);
+        AvatarResponse response = avatarService.createAvatar(createRequest);
 
         // Assert
         assertNotNull(response);
+        assertEquals(avatarId, response.id());
+        assertEquals(objectUrlStrategy.getUrl(avatar.getObjectKey()), response.imageUrl());
 
         verify(avatarRepository, times(1)).existsByAvatarName(createRequest.avatarName());
         verify(s3Service, times(1)).uploadFile(anyString(), anyString(), eq(createRequest.file()));
         verify(avatarRepository, times(1)).save(captor.capture());
+        verify(avatarCatalogChangeLog, times(1)).recordAdded(avatarId);
 
         Avatar savedAvatar = captor.getValue();
         assertEquals(createRequest.avatarName(), savedAvatar.getAvatarName());
         assertNotNull(savedAvatar.getObjectKey());
-        assertNotNull(savedAvatar.getImageUrl());
+    }
+
+    @Test
+    void testCreateAvatar_SavesAndRecordsInOneTransactionUnderLock() throws IOException {
+        // Arrange
+        when(avatarRepository.existsByAvatarName(createRequest.avatarName())).thenReturn(false);
+        when(avatarRepository.save(any(Avatar.class))).thenReturn(avatar);
+        doAnswer(invocation -> {
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+            return null;
+        }).when(transactionManager).commit(any());
+        TransactionSynchronizationManager.initSynchronization();
+
+        try {
+            // Act
+            avatarService.createAvatar(createRequest);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        // Assert
+        InOrder inOrder = inOrder(transactionManager, avatarRepository, avatarCatalogChangeLog, cacheInvalidationService);
+        inOrder.verify(transactionManager).getTransaction(any());
+        inOrder.verify(avatarRepository).lockCatalog();
+        inOrder.verify(avatarRepository).save(any(Avatar.class));
+        inOrder.verify(avatarCatalogChangeLog).recordAdded(avatarId);
+        inOrder.verify(transactionManager).commit(any());
+        inOrder.verify(cacheInvalidationService).avatarCatalogChanged();
+    }
+
+    @Test
+    void testCreateAvatar_ChecksAndUploadsUnderCatalogLock() throws IOException {
+        // Arrange
+        when(avatarRepository.existsByAvatarName(createRequest.avatarName())).thenReturn(false);
+        when(avatarRepository.save(any(Avatar.class))).thenReturn(avatar);
+
+        // Act
+        avatarService.createAvatar(createRequest);
+
+        // Assert
+        InOrder inOrder = inOrder(transactionManager, avatarRepository, s3Service);
+        inOrder.verify(transactionManager).getTransaction(any());
+        inOrder.verify(avatarRepository).lockCatalog();
+        inOrder.verify(avatarRepository).findFirstByObjectKey(anyString());
+        inOrder.verify(s3Service).uploadFile(anyString(), anyString(), eq(createRequest.file()));
+        inOrder.verify(avatarRepository).save(any(Avatar.class));
+        inOrder.verify(transactionManager).commit(any());
+    }
+
+    @Test
+    void testCreateAvatar_RecordFails_RollsBackWithoutInvalidating() throws IOException {
+        // Arrange
+        when(avatarRepository.existsByAvatarName(createRequest.avatarName())).thenReturn(false);
+        when(avatarRepository.save(any(Avatar.class))).thenReturn(avatar);
+        doThrow(new IllegalStateException("Database down")).when(avatarCatalogChangeLog).recordAdded(avatarId);
+
+        // Act & Assert
+        assertThrows(IllegalStateException.class, () -> avatarService.createAvatar(createRequest));
+
+        verify(transactionManager, times(1)).rollback(any());
+        verify(transactionManager, never()).commit(any());
+        verify(cacheInvalidationService, never()).avatarCatalogChanged();
+    }
+
+    @Test
+    void testCreateAvatar_UploadsRenditions() throws IOException {
+        // Arrange
+        ArgumentCaptor<Avatar> captor = ArgumentCaptor.forClass(Avatar.class);
+        List<ImageRendition> renditions = List.of(
+                new ImageRendition(64, "png", "image/png", new byte[] {1}),
+                new ImageRendition(128, "png", "image/png", new byte[] {2})
+        );
+
+        when(avatarRepository.existsByAvatarName(createRequest.avatarName())).thenReturn(false);
+        when(imageService.createRenditions(any())).thenReturn(renditions);
+        when(avatarRepository.save(captor.capture())).thenReturn(avatar);
+
+        // Act
+        avatarService.createAvatar(createRequest);
+
+        // Assert
+        verify(s3Service, times(1)).uploadFile(anyString(), anyString(), eq(createRequest.file()));
+        verify(s3Service, times(2)).uploadFile(anyString(), anyString(), any(byte[].class), eq("image/png"));
+
+        Avatar savedAvatar = captor.getValue();
+        String baseKey = savedAvatar.getObjectKey().substring(0, savedAvatar.getObjectKey().lastIndexOf("."));
+        assertEquals(2, savedAvatar.getRenditions().size());
+        assertEquals(64, savedAvatar.getRenditions().get(0).getSize());
+        assertEquals(baseKey + "-64.png", savedAvatar.getRenditions().get(0).getObjectKey());
+        assertEquals(baseKey + "-128.png", savedAvatar.getRenditions().get(1).getObjectKey());
+    }
+
+    @Test
+    void testCreateAvatar_ObjectKeyIsContentHash() throws IOException {
+        // Arrange
+        ArgumentCaptor<Avatar> captor = ArgumentCaptor.forClass(Avatar.class);
+        when(avatarRepository.existsByAvatarName(createRequest.avatarName())).thenReturn(false);
+        when(avatarRepository.save(captor.capture())).thenReturn(avatar);
+
+        // Act
+        avatarService.createAvatar(createRequest);
+
+        // Assert
+        String expectedKey = "290f493c44f5d63d06b374d0a5abd292fae38b92cab2fae5efefe1b0e9347f56.jpg";
+        verify(s3Service, times(1)).uploadFile(anyString(), eq(expectedKey), eq(createRequest.file()));
+        assertEquals(expectedKey, captor.getValue().getObjectKey());
+    }
+
+    @Test
+    void testCreateAvatar_DuplicateContent_ReusesStoredObject() throws IOException {
+        // Arrange
+        String objectKey = "290f493c44f5d63d06b374d0a5abd292fae38b92cab2fae5efefe1b0e9347f56.jpg";
+        avatar2.setObjectKey(objectKey);
+        avatar2.setRenditions(List.of(new AvatarRendition(64, "png", "290f493c44f5d63d06b374d0a5abd292fae38b92cab2fae5efefe1b0e9347f56-64.png")));
+        ArgumentCaptor<Avatar> captor = ArgumentCaptor.forClass(Avatar.class);
+
+        when(avatarRepository.existsByAvatarName(createRequest.avatarName())).thenReturn(false);
+        when(avatarRepository.findFirstByObjectKey(objectKey)).thenReturn(Optional.of(avatar2));
+        when(avatarRepository.save(captor.capture())).thenReturn(avatar);
+
+        // Act
+        avatarService.createAvatar(createRequest);
+
+        // Assert
+        verify(s3Service, never()).uploadFile(anyString(), anyString(), any(MultipartFile.class));
+        verify(imageService, never()).createRenditions(any());
+
+        Avatar savedAvatar = captor.getValue();
+        assertEquals(objectKey, savedAvatar.getObjectKey());
+        assertEquals(1, savedAvatar.getRenditions().size());
+        assertNotSame(avatar2.getRenditions().get(0), savedAvatar.getRenditions().get(0));
+        assertEquals("290f493c44f5d63d06b374d0a5abd292fae38b92cab2fae5efefe1b0e9347f56-64.png", savedAvatar.getRenditions().get(0).getObjectKey());
     }
 
     @Test
@@ -146,57 +319,353 @@ public class AvatarServiceImplTest {
         verify(avatarRepository, never()).save(any(Avatar.class));
     }
 
+    @Test
+    void testCreateAvatarFromStream_Success() {
+        // Arrange
+        CreateAvatarStreamRequest streamRequest = new CreateAvatarStreamRequest(
+                avatar.getAvatarName(), "filename.png", "image/png", new ByteArrayInputStream("some content".getBytes()));
+        ArgumentCaptor<Avatar> captor = ArgumentCaptor.forClass(Avatar.class);
+
+        when(avatarRepository.existsByAvatarName(streamRequest.avatarName())).thenReturn(false);
+        when(s3Service.uploadStream(anyString(), anyString(), eq(streamRequest.content()), eq("image/png")))
+                .thenReturn(new S3UploadResult(12, "checksum"));
+        when(avatarRepository.save(captor.capture())).thenReturn(avatar);
+
+        // Act
+        AvatarResponse response = avatarService.createAvatar(streamRequest);
+
+        // Assert
+        assertNotNull(response);
+        verify(s3Service, times(1)).uploadStream(anyString(), anyString(), eq(streamRequest.content()), eq("image/png"));
+
+        Avatar savedAvatar = captor.getValue();
+        assertEquals(streamRequest.avatarName(), savedAvatar.getAvatarName());
+        assertTrue(savedAvatar.getObjectKey().endsWith(".png"));
+    }
+
+    @Test
+    void testCreateAvatarFromStream_MovesStagedObjectToContentKey() {
+        // Arrange
+        CreateAvatarStreamRequest streamRequest = new CreateAvatarStreamRequest(
+                avatar.getAvatarName(), "filename.png", "image/png", new ByteArrayInputStream("some content".getBytes()));
+        ArgumentCaptor<String> stagingKey = ArgumentCaptor.forClass(String.class);
+
+        when(avatarRepository.existsByAvatarName(streamRequest.avatarName())).thenReturn(false);
+        when(s3Service.uploadStream(anyString(), stagingKey.capture(), any(), anyString()))
+                .thenReturn(new S3UploadResult(12, "checksum"));
+        when(avatarRepository.save(any(Avatar.class))).thenReturn(avatar);
+
+        // Act
+        avatarService.createAvatar(streamRequest);
+
+        // Assert
+        assertTrue(stagingKey.getValue().startsWith("staging/"));
+        verify(s3Service, times(1)).copyFile(anyString(), eq(stagingKey.getValue()), eq("checksum.png"));
+        verify(s3Service, times(1)).deleteFile(eq(stagingKey.getValue()), anyString());
+        verify(s3Service, times(1)).downloadFile(anyString(), eq("checksum.png"));
+    }
+
+    @Test
+    void testCreateAvatarFromStream_MovesStagedObjectUnderCatalogLock() {
+        // Arrange
+        CreateAvatarStreamRequest streamRequest = new CreateAvatarStreamRequest(
+                avatar.getAvatarName(), "filename.png", "image/png", new ByteArrayInputStream("some content".getBytes()));
+
+        when(avatarRepository.existsByAvatarName(streamRequest.avatarName())).thenReturn(false);
+        when(s3Service.uploadStream(anyString(), anyString(), any(), anyString()))
+                .thenReturn(new S3UploadResult(12, "checksum"));
+        when(avatarRepository.save(any(Avatar.class))).thenReturn(avatar);
+
+        // Act
+        avatarService.createAvatar(streamRequest);
+
+        // Assert
+        InOrder inOrder = inOrder(transactionManager, avatarRepository, s3Service);
+        inOrder.verify(s3Service).uploadStream(anyString(), anyString(), any(), anyString());
+        inOrder.verify(transactionManager).getTransaction(any());
+        inOrder.verify(avatarRepository).lockCatalog();
+        inOrder.verify(avatarRepository).findFirstByObjectKey("checksum.png");
+        inOrder.verify(s3Service).copyFile(anyString(), anyString(), eq("checksum.png"));
+        inOrder.verify(avatarRepository).save(any(Avatar.class));
+        inOrder.verify(transactionManager).commit(any());
+    }
+
+    @Test
+    void testCreateAvatarFromStream_DuplicateContent_DiscardsStagedObject() {
+        // Arrange
+        CreateAvatarStreamRequest streamRequest = new CreateAvatarStreamRequest(
+                avatar.getAvatarName(), "filename.png", "image/png", new ByteArrayInputStream("some content".getBytes()));
+        avatar2.setObjectKey("checksum.png");
+        ArgumentCaptor<String> stagingKey = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<Avatar> captor = ArgumentCaptor.forClass(Avatar.class);
+
+        when(avatarRepository.existsByAvatarName(streamRequest.avatarName())).thenReturn(false);
+        when(s3Service.uploadStream(anyString(), stagingKey.capture(), any(), anyString()))
+                .thenReturn(new S3UploadResult(12, "checksum"));
+        when(avatarRepository.findFirstByObjectKey("checksum.png")).thenReturn(Optional.of(avatar2));
+        when(avatarRepository.save(captor.capture())).thenReturn(avatar);
+
+        // Act
+        avatarService.createAvatar(streamRequest);
+
+        // Assert
+        verify(s3Service, times(1)).deleteFile(eq(stagingKey.getValue()), anyString());
+        verify(s3Service, never()).copyFile(anyString(), anyString(), anyString());
+        verify(s3Service, never()).downloadFile(anyString(), anyString());
+        assertEquals("checksum.png", captor.getValue().getObjectKey());
+    }
+
+    @Test
+    void testCreateAvatarFromStream_CopyFails_DeletesStagedObject() {
+        // Arrange
+        CreateAvatarStreamRequest streamRequest = new CreateAvatarStreamRequest(
+                avatar.getAvatarName(), "filename.png", "image/png", new ByteArrayInputStream("some content".getBytes()));
+        ArgumentCaptor<String> stagingKey = ArgumentCaptor.forClass(String.class);
+
+        when(avatarRepository.existsByAvatarName(streamRequest.avatarName())).thenReturn(false);
+        when(s3Service.uploadStream(anyString(), stagingKey.capture(), any(), anyString()))
+                .thenReturn(new S3UploadResult(12, "checksum"));
+        doThrow(new IllegalStateException("S3 down")).when(s3Service).copyFile(anyString(), anyString(), anyString());
+
+        // Act & Assert
+        assertThrows(IllegalStateException.class, () -> avatarService.createAvatar(streamRequest));
+
+        verify(s3Service, times(1)).deleteFile(eq(stagingKey.getValue()), anyString());
+        verify(avatarRepository, never()).save(any(Avatar.class));
+        verify(avatarObjectReaper, never()).scheduleDeletion(anyString());
+    }
+
+    @Test
+    void testCreateAvatarFromStream_StagedDeleteFails_SchedulesDeletion() {
+        // Arrange
+        CreateAvatarStreamRequest streamRequest = new CreateAvatarStreamRequest(
+                avatar.getAvatarName(), "filename.png", "image/png", new ByteArrayInputStream("some content".getBytes()));
+        ArgumentCaptor<String> stagingKey = ArgumentCaptor.forClass(String.class);
+
+        when(avatarRepository.existsByAvatarName(streamRequest.avatarName())).thenReturn(false);
+        when(s3Service.uploadStream(anyString(), stagingKey.capture(), any(), anyString()))
+                .thenReturn(new S3UploadResult(12, "checksum"));
+        doThrow(new IllegalStateException("S3 down")).when(s3Service).copyFile(anyString(), anyString(), anyString());
+        doThrow(new IllegalStateException("S3 down")).when(s3Service).deleteFile(anyString(), anyString());
+
+        // Act & Assert
+        assertThrows(IllegalStateException.class, () -> avatarService.createAvatar(streamRequest));
+
+        verify(avatarObjectReaper, times(1)).scheduleDeletion(stagingKey.getValue());
+    }
+
+    @Test
+    void testCreateAvatarFromStream_IncorrectFile() {
+        // Arrange
+        CreateAvatarStreamRequest streamRequest = new CreateAvatarStreamRequest(
+                avatar.getAvatarName(), "filename.txt", "text/plain", new ByteArrayInputStream("some content".getBytes()));
+        when(avatarRepository.existsByAvatarName(streamRequest.avatarName())).thenReturn(false);
+
+        // Act & Assert
+        assertThrows(IncorrectFileException.class, () -> avatarService.createAvatar(streamRequest));
+
+        verify(s3Service, never()).uploadStream(anyString(), anyString(), any(), any());
+        verify(avatarRepository, never()).save(any(Avatar.class));
+    }
+
     // ------------------------------------
 
     @Test
     void testGetAvatars_Success() {
         // Arrange
-        List<Avatar> avatars = List.of(avatar, avatar2);
-        when(avatarRepository.findAll()).thenReturn(avatars);
+        List<AvatarCatalogRow> rows = List.of(
+                new AvatarCatalogRow(avatar.getId(), avatar.getAvatarName(), avatar.getObjectKey(), 64, "png", "test-avatar-key-1-64.png"),
+                new AvatarCatalogRow(avatar.getId(), avatar.getAvatarName(), avatar.getObjectKey(), 128, "png", "test-avatar-key-1-128.png"),
+                new AvatarCatalogRow(avatar2.getId(), avatar2.getAvatarName(), avatar2.getObjectKey(), null, null, null)
+        );
+        when(avatarRepository.findCatalog()).thenReturn(rows);
 
         // Act
-        List<Avatar> response = avatarService.getAvatars();
+        List<AvatarResponse> response = avatarService.getAvatars();
 
         // Assert
         assertNotNull(response);
         assertEquals(2, response.size());
-        assertEquals(avatar.getId(), response.get(0).getId());
-        assertEquals(avatar.getAvatarName(), response.get(0).getAvatarName());
-        assertEquals(avatar2.getId(), response.get(1).getId());
-        assertEquals(avatar2.getAvatarName(), response.get(1).getAvatarName());
+        assertEquals(avatar.getId(), response.get(0).id());
+        assertEquals(avatar.getAvatarName(), response.get(0).avatarName());
+        assertEquals("https://bucket-name.s3.region-name.amazonaws.com/test-avatar-key-1", response.get(0).imageUrl());
+        assertEquals(2, response.get(0).renditions().size());
+        assertEquals(128, response.get(0).renditions().get(1).size());
+        assertEquals("https://bucket-name.s3.region-name.amazonaws.com/test-avatar-key-1-128.png",
+                response.get(0).renditions().get(1).imageUrl());
+        assertEquals(avatar2.getId(), response.get(1).id());
+        assertEquals(avatar2.getAvatarName(), response.get(1).avatarName());
+        assertTrue(response.get(1).renditions().isEmpty());
+
+        verify(avatarRepository, times(1)).findCatalog();
+        verify(avatarRepository, never()).findAll();
+    }
 
-        verify(avatarRepository, times(1)).findAll();
+    @Test
+    void testGetAvatars_ServedFromCache() {
+        // Arrange
+        when(avatarRepository.findCatalog()).thenReturn(List.of(
+                new AvatarCatalogRow(avatar.getId(), avatar.getAvatarName(), avatar.getObjectKey(), null, null, null)));
+
+        // Act
+        avatarService.getAvatars();
+        List<AvatarResponse> response = avatarService.getAvatars();
+
+        // Assert
+        assertEquals(1, response.size());
+        verify(avatarRepository, times(1)).findCatalog();
     }
 
     // ------------------------------------
 
     @Test
-    void testGetAvatar_Success() {
+    void testGetAvatarsPage_FirstPage() {
         // Arrange
-        when(avatarRepository.findById(avatarId)).thenReturn(Optional.of(avatar));
+        when(avatarRepository.findNames(Limit.of(2))).thenReturn(List.of(avatar.getAvatarName(), avatar2.getAvatarName()));
+        when(avatarRepository.findCatalogByAvatarNameIn(List.of(avatar.getAvatarName()))).thenReturn(List.of(
+                new AvatarCatalogRow(avatar.getId(), avatar.getAvatarName(), avatar.getObjectKey(), null, null, null)));
 
         // Act
-        Avatar response = avatarService.getAvatar(avatarId);
+        AvatarPage response = avatarService.getAvatars(null, 1);
 
         // Assert
-        assertNotNull(response);
-        assertEquals(avatar.getId(), response.getId());
-        assertEquals(avatar.getAvatarName(), response.getAvatarName());
+        assertEquals(1, response.avatars().size());
+        assertEquals(avatar.getId(), response.avatars().get(0).id());
+        assertEquals(avatar.getAvatarName(), AvatarServiceImpl.decodeCursor(response.nextCursor()));
+        verify(avatarRepository, never()).findCatalog();
+    }
 
-        verify(avatarRepository, times(1)).findById(avatarId);
+    @Test
+    void testGetAvatarsPage_LastPage() {
+        // Arrange
+        String cursor = AvatarServiceImpl.encodeCursor(avatar.getAvatarName());
+        when(avatarRepository.findNamesAfter(avatar.getAvatarName(), Limit.of(11))).thenReturn(List.of(avatar2.getAvatarName()));
+        when(avatarRepository.findCatalogByAvatarNameIn(List.of(avatar2.getAvatarName()))).thenReturn(List.of(
+                new AvatarCatalogRow(avatar2.getId(), avatar2.getAvatarName(), avatar2.getObjectKey(), null, null, null)));
+
+        // Act
+        AvatarPage response = avatarService.getAvatars(cursor, 10);
+
+        // Assert
+        assertEquals(1, response.avatars().size());
+        assertEquals(avatar2.getId(), response.avatars().get(0).id());
+        assertNull(response.nextCursor());
     }
 
     @Test
-    void testGetAvatar_NonExistentAvatar() {
+    void testGetAvatarsPage_LimitCapped() {
         // Arrange
-        UUID nonExistentAvatarId = UUID.randomUUID();
-        when(avatarRepository.findById(nonExistentAvatarId)).thenReturn(Optional.empty());
+        when(avatarRepository.findNames(Limit.of(AvatarServiceImpl.MAX_PAGE_SIZE + 1))).thenReturn(List.of());
 
+        // Act
+        AvatarPage response = avatarService.getAvatars(null, 100_000);
+
+        // Assert
+        assertTrue(response.avatars().isEmpty());
+        assertNull(response.nextCursor());
+        verify(avatarRepository, never()).findCatalogByAvatarNameIn(anyCollection());
+    }
+
+    @Test
+    void testGetAvatarsPage_InvalidCursor() {
         // Act & Assert
-        assertThrows(ResourceNotFoundException.class, () -> avatarService.getAvatar(nonExistentAvatarId));
+        assertThrows(InvalidCursorException.class, () -> avatarService.getAvatars("not a cursor!", 10));
+
+        verifyNoInteractions(avatarRepository);
+    }
+
+    // ------------------------------------
+
+    @Test
+    void testGetEncodedAvatars_Success() throws IOException {
+        // Arrange
+        when(avatarRepository.findCatalog()).thenReturn(List.of(
+                new AvatarCatalogRow(avatar.getId(), avatar.getAvatarName(), avatar.getObjectKey(), 64, "png", "test-avatar-key-1-64.png"),
+                new AvatarCatalogRow(avatar2.getId(), avatar2.getAvatarName(), avatar2.getObjectKey(), null, null, null)));
+
+        // Act
+        EncodedAvatarCatalog response = avatarService.getEncodedAvatars();
 
         // Assert
-        verify(avatarRepository, times(1)).findById(nonExistentAvatarId);
+        assertArrayEquals(objectMapper.writeValueAsBytes(avatarService.getAvatars()), response.json());
+        try (InputStream gzip = new GZIPInputStream(new ByteArrayInputStream(response.gzip()))) {
+            assertArrayEquals(response.json(), gzip.readAllBytes());
+        }
+        verify(avatarRepository, times(1)).findCatalog();
+    }
+
+    @Test
+    void testGetEncodedAvatars_EncodedOncePerCatalogVersion() {
+        // Arrange
+        when(avatarRepository.findCatalog()).thenReturn(List.of(
+                new AvatarCatalogRow(avatar.getId(), avatar.getAvatarName(), avatar.getObjectKey(), null, null, null)));
+        when(avatarRepository.findById(avatarId)).thenReturn(Optional.of(avatar));
+
+        // Act
+        EncodedAvatarCatalog first = avatarService.getEncodedAvatars();
+        EncodedAvatarCatalog second = avatarService.getEncodedAvatars();
+        avatarService.deleteAvatar(avatarId);
+        EncodedAvatarCatalog third = avatarService.getEncodedAvatars();
+
+        // Assert
+        assertSame(first, second);
+        assertNotSame(first, third);
+        verify(avatarRepository, times(2)).findCatalog();
+    }
+
+    // ------------------------------------
+
+    @Test
+    void testGetAvatarReference_NoQuery() {
+        // Arrange
+        when(avatarRepository.getReferenceById(avatarId)).thenReturn(avatar);
+
+        // Act
+        Avatar reference = avatarService.getAvatarReference(avatarId);
+
+        // Assert
+        assertSame(avatar, reference);
+        verify(avatarRepository, never()).findById(any(UUID.class));
+        verify(avatarRepository, never()).findObjectKeyById(any(UUID.class));
+    }
+
+    // ------------------------------------
+
+    @Test
+    void testGetAvatarUrl_Uncached_ReadsOnlyObjectKey() {
+        // Arrange
+        when(avatarRepository.findObjectKeyById(avatarId)).thenReturn(Optional.of(avatar.getObjectKey()));
+
+        // Act
+        String avatarUrl = avatarService.getAvatarUrl(avatarId);
+
+        // Assert
+        assertEquals(objectUrlStrategy.getUrl(avatar.getObjectKey()), avatarUrl);
+        verify(avatarRepository, never()).findById(any(UUID.class));
+    }
+
+    @Test
+    void testGetAvatarUrl_Cached_NoQuery() {
+        // Arrange
+        when(avatarRepository.findObjectKeyById(avatarId)).thenReturn(Optional.of(avatar.getObjectKey()));
+        avatarService.getAvatarUrl(avatarId);
+
+        // Act
+        String avatarUrl = avatarService.getAvatarUrl(avatarId);
+
+        // Assert
+        assertEquals(objectUrlStrategy.getUrl(avatar.getObjectKey()), avatarUrl);
+        verify(avatarRepository, times(1)).findObjectKeyById(avatarId);
+    }
+
+    @Test
+    void testGetAvatarUrl_NonExistentAvatar() {
+        // Arrange
+        UUID nonExistentAvatarId = UUID.randomUUID();
+        when(avatarRepository.findObjectKeyById(nonExistentAvatarId)).thenReturn(Optional.empty());
+
+        // Act & Assert
+        assertNull(avatarService.getAvatarUrl(nonExistentAvatarId));
     }
 
     // ------------------------------------
@@ -205,7 +674,15 @@ public class AvatarServiceImplTest {
     void testGetRandomAvatar_Success() {
         // Arrange
         List<Avatar> avatars = List.of(avatar, avatar2);
-        when(avatarRepository.findAll()).thenReturn(avatars);
+        when(avatarRepository.findAllIds()).thenReturn(List.of(avatar.getId(), avatar2.getId()));
+        when(avatarRepository.findObjectKeyById(any(UUID.class))).thenAnswer(invocation -> avatars.stream()
+                .filter(a -> a.getId().equals(invocation.getArgument(0)))
+                .map(Avatar::getObjectKey)
+                .findFirst());
+        when(avatarRepository.getReferenceById(any(UUID.class))).thenAnswer(invocation -> avatars.stream()
+                .filter(a -> a.getId().equals(invocation.getArgument(0)))
+                .findFirst()
+                .orElseThrow());
 
         // Act
         Avatar response = avatarService.getRandomAvatar();
@@ -213,20 +690,80 @@ public class AvatarServiceImplTest {
         // Assert
         assertNotNull(response);
         assertTrue(avatars.contains(response));
-        verify(avatarRepository, times(1)).findAll();
+        verify(avatarRepository, times(1)).findAllIds();
+        verify(avatarRepository, times(1)).findObjectKeyById(any(UUID.class));
+        verify(avatarRepository, never()).findById(any(UUID.class));
+        verify(avatarRepository, never()).findCatalog();
+    }
+
+    @Test
+    void testGetRandomAvatar_ServedFromCache() {
+        // Arrange
+        when(avatarRepository.findAllIds()).thenReturn(List.of(avatarId));
+        when(avatarRepository.findObjectKeyById(avatarId)).thenReturn(Optional.of(avatar.getObjectKey()));
+        when(avatarRepository.getReferenceById(avatarId)).thenReturn(avatar);
+
+        // Act
+        avatarService.getRandomAvatar();
+        Avatar response = avatarService.getRandomAvatar();
+
+        // Assert
+        assertEquals(avatar, response);
+        verify(avatarRepository, times(1)).findAllIds();
+        verify(avatarRepository, times(1)).findObjectKeyById(avatarId);
+    }
+
+    @Test
+    void testGetRandomAvatar_StaleIndex_RetriesWithFreshIndex() {
+        // Arrange
+        UUID removedAvatarId = UUID.randomUUID();
+        when(avatarRepository.findAllIds())
+                .thenReturn(List.of(removedAvatarId))
+                .thenReturn(List.of(avatarId));
+        when(avatarRepository.findObjectKeyById(removedAvatarId)).thenReturn(Optional.empty());
+        when(avatarRepository.findObjectKeyById(avatarId)).thenReturn(Optional.of(avatar.getObjectKey()));
+        when(avatarRepository.getReferenceById(avatarId)).thenReturn(avatar);
+
+        // Act
+        Avatar response = avatarService.getRandomAvatar();
+
+        // Assert
+        assertEquals(avatar, response);
+        verify(avatarRepository, times(2)).findAllIds();
+        verify(avatarRepository, never()).getReferenceById(removedAvatarId);
     }
 
     @Test
     void testGetRandomAvatar_NoAvatarsFound_ReturnsNull() {
         // Arrange
-        when(avatarRepository.findAll()).thenReturn(Collections.emptyList());
+        when(avatarRepository.findAllIds()).thenReturn(Collections.emptyList());
 
         // Act & Assert
         Avatar result = avatarService.getRandomAvatar();
 
         // Assert
         assertNull(result);
-        verify(avatarRepository, times(1)).findAll();
+        verify(avatarRepository, times(1)).findAllIds();
+        verify(avatarRepository, never()).findObjectKeyById(any(UUID.class));
+    }
+
+    @Test
+    void testCreateAvatar_InvalidatesCatalogCache() throws IOException {
+        // Arrange
+        when(avatarRepository.findAllIds()).thenReturn(List.of(avatarId));
+        when(avatarRepository.findObjectKeyById(avatarId)).thenReturn(Optional.of(avatar.getObjectKey()));
+        when(avatarRepository.getReferenceById(avatarId)).thenReturn(avatar);
+        when(avatarRepository.existsByAvatarName(createRequest.avatarName())).thenReturn(false);
+        when(avatarRepository.save(any(Avatar.class))).thenReturn(avatar);
+
+        // Act
+        avatarService.getRandomAvatar();
+        avatarService.createAvatar(createRequest);
+        avatarService.getRandomAvatar();
+
+        // Assert
+        verify(avatarRepository, times(2)).findAllIds();
+        verify(avatarRepository, times(2)).findObjectKeyById(avatarId);
     }
 
     // ------------------------------------
@@ -235,7 +772,7 @@ public class AvatarServiceImplTest {
     void testDeleteAvatar_Success() {
         // Arrange
         when(avatarRepository.findById(avatarId)).thenReturn(Optional.of(avatar));
-        doNothing().when(s3Service).deleteFile(eq(avatar.getObjectKey()), anyString());
+        when(avatarRepository.countByObjectKey(avatar.getObjectKey())).thenReturn(1L);
         doNothing().when(avatarRepository).delete(avatar);
 
         // Act
@@ -243,29 +780,65 @@ public class AvatarServiceImplTest {
 
         // Assert
         verify(avatarRepository, times(1)).findById(avatarId);
-        verify(s3Service, times(1)).deleteFile(eq(avatar.getObjectKey()), anyString());
+        verify(avatarObjectReaper, times(1)).scheduleDeletion(avatar);
         verify(avatarRepository, times(1)).delete(avatar);
+        verify(avatarCatalogChangeLog, times(1)).recordRemoved(avatarId);
+        verify(cacheInvalidationService, times(1)).avatarCatalogChanged();
+        verifyNoInteractions(s3Service);
 
         when(avatarRepository.findById(avatarId)).thenReturn(Optional.empty());
         assertFalse(avatarRepository.findById(avatarId).isPresent());
     }
 
     @Test
-    void testDeleteAvatar_S3BucketError() {
+    void testDeleteAvatar_InvalidatesOnlyAfterCommit() {
         // Arrange
         when(avatarRepository.findById(avatarId)).thenReturn(Optional.of(avatar));
-        doThrow(FileUploadException.class).when(s3Service).deleteFile(eq(avatar.getObjectKey()), anyString());
+        when(avatarRepository.countByObjectKey(avatar.getObjectKey())).thenReturn(1L);
+        TransactionSynchronizationManager.initSynchronization();
 
-        // Act & Assert
-        assertThrows(FileUploadException.class, () -> avatarService.deleteAvatar(avatarId));
+        try {
+            // Act
+            avatarService.deleteAvatar(avatarId);
+
+            // Assert
+            verify(cacheInvalidationService, never()).avatarCatalogChanged();
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+            verify(cacheInvalidationService, times(1)).avatarCatalogChanged();
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void testDeleteAvatar_SharedObject_KeepsFiles() {
+        // Arrange
+        avatar.setRenditions(List.of(
+                new AvatarRendition(64, "png", "test-avatar-key-1-64.png")
+        ));
+        when(avatarRepository.findById(avatarId)).thenReturn(Optional.of(avatar));
+        when(avatarRepository.countByObjectKey(avatar.getObjectKey())).thenReturn(2L);
+
+        // Act
+        avatarService.deleteAvatar(avatarId);
 
         // Assert
-        verify(avatarRepository, times(1)).findById(avatarId);
-        verify(s3Service, times(1)).deleteFile(eq(avatar.getObjectKey()), anyString());
-        verify(avatarRepository, never()).delete(avatar);
+        verify(avatarObjectReaper, never()).scheduleDeletion(any(Avatar.class));
+        verify(avatarRepository, times(1)).delete(avatar);
+    }
 
+    @Test
+    void testDeleteAvatar_SchedulingFails() {
+        // Arrange
         when(avatarRepository.findById(avatarId)).thenReturn(Optional.of(avatar));
-        assertTrue(avatarRepository.findById(avatarId).isPresent());
+        doThrow(IllegalStateException.class).when(avatarObjectReaper).scheduleDeletion(avatar);
+
+        // Act & Assert
+        assertThrows(IllegalStateException.class, () -> avatarService.deleteAvatar(avatarId));
+
+        // Assert
+        verify(avatarRepository, never()).delete(avatar);
     }
 
     @Test
@@ -279,7 +852,7 @@ public class AvatarServiceImplTest {
 
         // Assert
         verify(avatarRepository, times(1)).findById(nonExistentAvatarId);
-        verify(s3Service, never()).deleteFile(anyString(), anyString());
+        verify(avatarObjectReaper, never()).scheduleDeletion(any(Avatar.class));
         verify(avatarRepository, never()).delete(any(Avatar.class));
     }
 
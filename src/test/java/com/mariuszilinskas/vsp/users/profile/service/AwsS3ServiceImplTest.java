@@ -1,20 +1,31 @@
 package com.mariuszilinskas.vsp.users.profile.service;
 
 import com.amazonaws.services.s3.AmazonS3;
-import com.amazonaws.services.s3.model.AmazonS3Exception;
-import com.amazonaws.services.s3.model.ObjectMetadata;
-import com.amazonaws.services.s3.model.PutObjectResult;
+import com.amazonaws.services.s3.model.*;
+import com.mariuszilinskas.vsp.users.profile.dto.S3UploadResult;
 import com.mariuszilinskas.vsp.users.profile.exception.FileUploadException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.stream.IntStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -25,6 +36,9 @@ public class AwsS3ServiceImplTest {
     @Mock
     private AmazonS3 s3Client;
 
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
     @InjectMocks
     private AwsS3ServiceImpl awsS3Service;
 
@@ -35,7 +49,11 @@ public class AwsS3ServiceImplTest {
     // ------------------------------------
 
     @BeforeEach
-    void setUp() {
+    void setUp() throws NoSuchFieldException, IllegalAccessException {
+        Field partSize = AwsS3ServiceImpl.class.getDeclaredField("partSize");
+        partSize.setAccessible(true);
+        partSize.set(awsS3Service, DataSize.ofBytes(5));
+
         multipartFile = new MockMultipartFile(
                 "file",
                 "filename.jpg",
@@ -56,7 +74,8 @@ public class AwsS3ServiceImplTest {
         awsS3Service.uploadFile(bucketName, objectKey, multipartFile);
 
         // Assert
-        verify(s3Client, times(1)).putObject(anyString(), anyString(), any(), any(ObjectMetadata.class));
+        verify(s3Client, times(1)).putObject(anyString(), anyString(), any(),
+                argThat((ObjectMetadata metadata) -> "public, max-age=31536000, immutable".equals(metadata.getCacheControl())));
     }
 
     @Test
@@ -86,6 +105,68 @@ public class AwsS3ServiceImplTest {
         verify(s3Client, never()).putObject(anyString(), anyString(), any(), any(ObjectMetadata.class));
     }
 
+    @Test
+    void testUploadStream_Success() throws NoSuchAlgorithmException {
+        // Arrange
+        byte[] content = "some content".getBytes();
+        InitiateMultipartUploadResult initiateResult = new InitiateMultipartUploadResult();
+        initiateResult.setUploadId("upload-id");
+        when(s3Client.initiateMultipartUpload(any(InitiateMultipartUploadRequest.class))).thenReturn(initiateResult);
+        when(s3Client.uploadPart(any(UploadPartRequest.class))).thenAnswer(invocation -> {
+            UploadPartResult result = new UploadPartResult();
+            result.setPartNumber(invocation.<UploadPartRequest>getArgument(0).getPartNumber());
+            result.setETag("etag");
+            return result;
+        });
+
+        // Act
+        S3UploadResult result = awsS3Service.uploadStream(bucketName, objectKey, new ByteArrayInputStream(content), "image/jpeg");
+
+        // Assert
+        String expectedChecksum = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+        assertEquals(content.length, result.contentLength());
+        assertEquals(expectedChecksum, result.checksum());
+
+        verify(s3Client, times(3)).uploadPart(any(UploadPartRequest.class));
+        verify(s3Client, times(1)).completeMultipartUpload(any(CompleteMultipartUploadRequest.class));
+        verify(s3Client, never()).abortMultipartUpload(any(AbortMultipartUploadRequest.class));
+    }
+
+    @Test
+    void testUploadStream_S3Exception_AbortsUpload() {
+        // Arrange
+        InitiateMultipartUploadResult initiateResult = new InitiateMultipartUploadResult();
+        initiateResult.setUploadId("upload-id");
+        AmazonS3Exception s3Exception = new AmazonS3Exception("S3 Error");
+        s3Exception.setStatusCode(500);
+        when(s3Client.initiateMultipartUpload(any(InitiateMultipartUploadRequest.class))).thenReturn(initiateResult);
+        when(s3Client.uploadPart(any(UploadPartRequest.class))).thenThrow(s3Exception);
+        InputStream content = new ByteArrayInputStream("some content".getBytes());
+
+        // Act & Assert
+        assertThrows(FileUploadException.class, () -> awsS3Service.uploadStream(bucketName, objectKey, content, "image/jpeg"));
+
+        // Assert
+        verify(s3Client, times(1)).abortMultipartUpload(any(AbortMultipartUploadRequest.class));
+        verify(s3Client, never()).completeMultipartUpload(any(CompleteMultipartUploadRequest.class));
+    }
+
+    @Test
+    void testUploadStream_EmptyFile_AbortsUpload() {
+        // Arrange
+        InitiateMultipartUploadResult initiateResult = new InitiateMultipartUploadResult();
+        initiateResult.setUploadId("upload-id");
+        when(s3Client.initiateMultipartUpload(any(InitiateMultipartUploadRequest.class))).thenReturn(initiateResult);
+        InputStream content = new ByteArrayInputStream(new byte[0]);
+
+        // Act & Assert
+        assertThrows(FileUploadException.class, () -> awsS3Service.uploadStream(bucketName, objectKey, content, "image/jpeg"));
+
+        // Assert
+        verify(s3Client, never()).uploadPart(any(UploadPartRequest.class));
+        verify(s3Client, times(1)).abortMultipartUpload(any(AbortMultipartUploadRequest.class));
+    }
+
     @Test
     void testDeleteFile_Success() {
         // Arrange
@@ -110,6 +191,89 @@ public class AwsS3ServiceImplTest {
 
         // Assert
         verify(s3Client, times(1)).deleteObject(anyString(), anyString());
+        assertEquals(1, meterRegistry.get("s3.requests")
+                .tag("operation", "delete").tag("outcome", "failure").timer().count());
+    }
+
+    @Test
+    void testDeleteFiles_Success() {
+        // Arrange
+        List<String> objectKeys = IntStream.range(0, 1500).mapToObj(i -> "key-" + i).toList();
+
+        // Act
+        List<String> failedKeys = awsS3Service.deleteFiles(bucketName, objectKeys);
+
+        // Assert
+        assertTrue(failedKeys.isEmpty());
+        verify(s3Client, times(1)).deleteObjects(argThat((DeleteObjectsRequest request) -> request.getKeys().size() == 1000));
+        verify(s3Client, times(1)).deleteObjects(argThat((DeleteObjectsRequest request) -> request.getKeys().size() == 500));
+    }
+
+    @Test
+    void testDeleteFiles_PartialFailure() {
+        // Arrange
+        MultiObjectDeleteException.DeleteError error = new MultiObjectDeleteException.DeleteError();
+        error.setKey("key-2");
+        doThrow(new MultiObjectDeleteException(List.of(error), List.of()))
+                .when(s3Client).deleteObjects(any(DeleteObjectsRequest.class));
+
+        // Act
+        List<String> failedKeys = awsS3Service.deleteFiles(bucketName, List.of("key-1", "key-2"));
+
+        // Assert
+        assertEquals(List.of("key-2"), failedKeys);
+    }
+
+    @Test
+    void testDeleteFiles_S3Exception() {
+        // Arrange
+        doThrow(new AmazonS3Exception("S3 Error")).when(s3Client).deleteObjects(any(DeleteObjectsRequest.class));
+
+        // Act
+        List<String> failedKeys = awsS3Service.deleteFiles(bucketName, List.of("key-1", "key-2"));
+
+        // Assert
+        assertEquals(List.of("key-1", "key-2"), failedKeys);
+        assertEquals(1, meterRegistry.get("s3.requests")
+                .tag("operation", "delete-batch").tag("outcome", "failure").timer().count());
+    }
+
+    // ------------------------------------
+
+    @Test
+    void testUploadFile_RecordsMetrics() {
+        // Arrange
+        byte[] content = "some content".getBytes();
+
+        // Act
+        awsS3Service.uploadFile(bucketName, objectKey, content, "image/png");
+
+        // Assert
+        assertEquals(1, meterRegistry.get("s3.requests")
+                .tag("operation", "upload").tag("outcome", "success").timer().count());
+        assertEquals(content.length, meterRegistry.get("s3.transfer.size")
+                .tag("operation", "upload").summary().totalAmount());
+    }
+
+    // ------------------------------------
+
+    @Test
+    void testCopyFile_Success() {
+        // Act
+        awsS3Service.copyFile(bucketName, "staging/" + objectKey, objectKey);
+
+        // Assert
+        verify(s3Client, times(1)).copyObject(bucketName, "staging/" + objectKey, bucketName, objectKey);
+    }
+
+    @Test
+    void testCopyFile_S3Exception() {
+        // Arrange
+        doThrow(new AmazonS3Exception("S3 Error")).when(s3Client)
+                .copyObject(bucketName, "staging/" + objectKey, bucketName, objectKey);
+
+        // Act & Assert
+        assertThrows(FileUploadException.class, () -> awsS3Service.copyFile(bucketName, "staging/" + objectKey, objectKey));
     }
 
 }
@@ -0,0 +1,133 @@
+package com.mariuszilinskas.vsp.users.profile.service;
+
+import com.mariuszilinskas.vsp.users.profile.dto.CacheInvalidationMessage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.amqp.core.AmqpTemplate;
+
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class CacheInvalidationServiceTest {
+
+    @Mock
+    private AmqpTemplate amqpTemplate;
+
+    @Mock
+    private AvatarCatalogCache avatarCatalogCache;
+
+    @Mock
+    private ProfileCache profileCache;
+
+    private CacheInvalidationService cacheInvalidationService;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final String exchange = "exchange";
+    private final String routingKey = "cache-invalidation";
+
+    // ------------------------------------
+
+    @BeforeEach
+    void setUp() {
+        cacheInvalidationService = new CacheInvalidationService(amqpTemplate, avatarCatalogCache, profileCache,
+                meterRegistry, exchange, routingKey, 2);
+    }
+
+    // ------------------------------------
+
+    @Test
+    void testFlush_CoalescesChanges() {
+        // Arrange
+        UUID userId = UUID.randomUUID();
+        ArgumentCaptor<CacheInvalidationMessage> captor = ArgumentCaptor.forClass(CacheInvalidationMessage.class);
+
+        // Act
+        cacheInvalidationService.profilesChanged(userId);
+        cacheInvalidationService.profilesChanged(List.of(userId));
+        cacheInvalidationService.avatarCatalogChanged();
+        cacheInvalidationService.flush();
+
+        // Assert
+        verify(amqpTemplate, times(1)).convertAndSend(eq(exchange), eq(routingKey), captor.capture());
+        assertTrue(captor.getValue().avatarCatalog());
+        assertEquals(Set.of(userId), captor.getValue().userIds());
+    }
+
+    @Test
+    void testFlush_SplitsLargeBursts() {
+        // Arrange
+        ArgumentCaptor<CacheInvalidationMessage> captor = ArgumentCaptor.forClass(CacheInvalidationMessage.class);
+
+        // Act
+        cacheInvalidationService.profilesChanged(List.of(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID()));
+        cacheInvalidationService.flush();
+
+        // Assert
+        verify(amqpTemplate, times(2)).convertAndSend(eq(exchange), eq(routingKey), captor.capture());
+        assertEquals(3, captor.getAllValues().stream().mapToInt(message -> message.userIds().size()).sum());
+    }
+
+    @Test
+    void testFlush_NothingPending() {
+        // Act
+        cacheInvalidationService.flush();
+
+        // Assert
+        verify(amqpTemplate, never()).convertAndSend(anyString(), anyString(), any(Object.class));
+    }
+
+    @Test
+    void testFlush_PublishFailureIsNotThrown() {
+        // Arrange
+        doThrow(new RuntimeException("Connection refused")).when(amqpTemplate)
+                .convertAndSend(anyString(), anyString(), any(Object.class));
+        cacheInvalidationService.avatarCatalogChanged();
+
+        // Act & Assert
+        assertDoesNotThrow(() -> cacheInvalidationService.flush());
+        assertEquals(1, meterRegistry.counter("cache.invalidation.publish.failures").count());
+    }
+
+    // ------------------------------------
+
+    @Test
+    void testHandleInvalidation_EvictsChangedEntries() {
+        // Arrange
+        UUID userId = UUID.randomUUID();
+        var message = new CacheInvalidationMessage("other-instance", System.currentTimeMillis(), true, Set.of(userId));
+
+        // Act
+        cacheInvalidationService.handleInvalidation(message);
+
+        // Assert
+        verify(avatarCatalogCache, times(1)).invalidate();
+        verify(profileCache, times(1)).evictAll(Set.of(userId));
+        assertEquals(1, meterRegistry.timer("cache.invalidation.lag").count());
+    }
+
+    @Test
+    void testHandleInvalidation_IgnoresOwnMessages() {
+        // Arrange
+        ArgumentCaptor<CacheInvalidationMessage> captor = ArgumentCaptor.forClass(CacheInvalidationMessage.class);
+        cacheInvalidationService.avatarCatalogChanged();
+        cacheInvalidationService.flush();
+        verify(amqpTemplate).convertAndSend(eq(exchange), eq(routingKey), captor.capture());
+
+        // Act
+        cacheInvalidationService.handleInvalidation(captor.getValue());
+
+        // Assert
+        verify(avatarCatalogCache, never()).invalidate();
+    }
+
+}
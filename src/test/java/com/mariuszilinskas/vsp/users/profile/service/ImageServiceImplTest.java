@@ -0,0 +1,118 @@
+package com.mariuszilinskas.vsp.users.profile.service;
+
+import com.mariuszilinskas.vsp.users.profile.dto.ImageRendition;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ImageServiceImplTest {
+
+    private ImageServiceImpl imageService;
+
+    // ------------------------------------
+
+    @BeforeEach
+    void setUp() {
+        imageService = new ImageServiceImpl(List.of(64, 256, 128), List.of("png", "no-such-format"), 1000);
+    }
+
+    // ------------------------------------
+
+    private byte[] createImage(int width, int height) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", output);
+        return output.toByteArray();
+    }
+
+    // ------------------------------------
+
+    @Test
+    void testCreateRenditions_Success() throws IOException {
+        // Arrange
+        byte[] source = createImage(600, 400);
+
+        // Act
+        List<ImageRendition> renditions = imageService.createRenditions(new ByteArrayInputStream(source));
+
+        // Assert
+        assertEquals(3, renditions.size());
+        assertEquals(List.of(256, 128, 64), renditions.stream().map(ImageRendition::size).toList());
+
+        for (ImageRendition rendition : renditions) {
+            assertEquals("png", rendition.format());
+            assertEquals("image/png", rendition.contentType());
+
+            BufferedImage decoded = ImageIO.read(new ByteArrayInputStream(rendition.content()));
+            assertEquals(rendition.size(), decoded.getWidth());
+            assertEquals(rendition.size(), decoded.getHeight());
+        }
+    }
+
+    @Test
+    void testCreateRenditions_UnsupportedImageForWriter_Throws() throws IOException {
+        // Arrange
+        imageService = new ImageServiceImpl(List.of(64), List.of("jpeg"), 1000);
+        byte[] source = createImage(600, 400);
+
+        // Act & Assert
+        assertThrows(IllegalStateException.class, () -> imageService.createRenditions(new ByteArrayInputStream(source)));
+    }
+
+    @Test
+    void testCreateRenditions_SmallSource_SkipsLargerRenditions() throws IOException {
+        // Arrange
+        byte[] source = createImage(200, 150);
+
+        // Act
+        List<ImageRendition> renditions = imageService.createRenditions(new ByteArrayInputStream(source));
+
+        // Assert
+        assertEquals(List.of(128, 64), renditions.stream().map(ImageRendition::size).toList());
+        BufferedImage largest = ImageIO.read(new ByteArrayInputStream(renditions.get(0).content()));
+        assertEquals(128, largest.getWidth());
+    }
+
+    @Test
+    void testCreateRenditions_SourceSmallerThanAllSizes_ReturnsEmpty() throws IOException {
+        // Arrange
+        byte[] source = createImage(32, 32);
+
+        // Act
+        List<ImageRendition> renditions = imageService.createRenditions(new ByteArrayInputStream(source));
+
+        // Assert
+        assertTrue(renditions.isEmpty());
+    }
+
+    @Test
+    void testCreateRenditions_TooLargeSource_ReturnsEmpty() throws IOException {
+        // Arrange
+        byte[] source = createImage(1200, 10);
+
+        // Act
+        List<ImageRendition> renditions = imageService.createRenditions(new ByteArrayInputStream(source));
+
+        // Assert
+        assertTrue(renditions.isEmpty());
+    }
+
+    @Test
+    void testCreateRenditions_NotAnImage_ReturnsEmpty() {
+        // Act
+        List<ImageRendition> renditions = imageService.createRenditions(
+                new ByteArrayInputStream("<svg xmlns=\"http://www.w3.org/2000/svg\"/>".getBytes()));
+
+        // Assert
+        assertTrue(renditions.isEmpty());
+    }
+
+}
@@ -0,0 +1,59 @@
+package com.mariuszilinskas.vsp.users.profile.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ObjectUrlStrategyTest {
+
+    private final String objectKey = "avatar.png";
+
+    // ------------------------------------
+
+    @Test
+    void testS3ObjectUrlStrategy() {
+        ObjectUrlStrategy strategy = new S3ObjectUrlStrategy("bucket-name", "region-name");
+
+        assertEquals("https://bucket-name.s3.region-name.amazonaws.com/avatar.png", strategy.getUrl(objectKey));
+    }
+
+    @Test
+    void testCdnObjectUrlStrategy() {
+        ObjectUrlStrategy strategy = new CdnObjectUrlStrategy("cdn.example.com");
+
+        assertEquals("https://cdn.example.com/avatar.png", strategy.getUrl(objectKey));
+    }
+
+    @Test
+    void testCdnObjectUrlStrategy_MissingHost() {
+        assertThrows(IllegalArgumentException.class, () -> new CdnObjectUrlStrategy(""));
+        assertThrows(IllegalArgumentException.class, () -> new CdnObjectUrlStrategy(" "));
+    }
+
+    @Test
+    void testSignedCdnObjectUrlStrategy_SignsPath() {
+        ObjectUrlStrategy strategy = new SignedCdnObjectUrlStrategy("cdn.example.com", "secret");
+
+        String url = strategy.getUrl(objectKey);
+
+        assertTrue(url.startsWith("https://cdn.example.com/avatar.png?sig="));
+        assertEquals(url, strategy.getUrl(objectKey));
+        assertNotEquals(url, new SignedCdnObjectUrlStrategy("cdn.example.com", "other").getUrl(objectKey));
+        assertNotEquals(signatureOf(url), signatureOf(strategy.getUrl("other.png")));
+    }
+
+    @Test
+    void testSignedCdnObjectUrlStrategy_MissingKey() {
+        assertThrows(IllegalArgumentException.class, () -> new SignedCdnObjectUrlStrategy("cdn.example.com", ""));
+    }
+
+    @Test
+    void testSignedCdnObjectUrlStrategy_MissingHost() {
+        assertThrows(IllegalArgumentException.class, () -> new SignedCdnObjectUrlStrategy("", "secret"));
+    }
+
+    private String signatureOf(String url) {
+        return url.substring(url.indexOf("?sig=") + 5);
+    }
+
+}
@@ -0,0 +1,95 @@
+package com.mariuszilinskas.vsp.users.profile.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mariuszilinskas.vsp.users.profile.dto.ProfileExportRow;
+import com.mariuszilinskas.vsp.users.profile.repository.ProfileRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class ProfileExporterTest {
+
+    @Mock
+    private ProfileRepository profileRepository;
+
+    private ProfileExporter profileExporter;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final UUID userId = UUID.randomUUID();
+    private final UUID avatarId = UUID.randomUUID();
+    private final ProfileExportRow row1 = new ProfileExportRow(UUID.randomUUID(), userId, "Profile 1", false, avatarId);
+    private final ProfileExportRow row2 = new ProfileExportRow(UUID.randomUUID(), userId, "Profile 2", true, avatarId);
+    private final ProfileExportRow row3 = new ProfileExportRow(UUID.randomUUID(), userId, "Profile 3", false, null);
+
+    // ------------------------------------
+
+    @BeforeEach
+    void setUp() {
+        profileExporter = new ProfileExporter(profileRepository, objectMapper, 2);
+    }
+
+    // ------------------------------------
+
+    @Test
+    void testExport_WritesOneLinePerProfileInChunks() throws IOException {
+        // Arrange
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        when(profileRepository.findExportRows(Limit.of(2))).thenReturn(List.of(row1, row2));
+        when(profileRepository.findExportRowsAfter(row2.id(), Limit.of(2))).thenReturn(List.of(row3));
+
+        // Act
+        long exported = profileExporter.export(out);
+
+        // Assert
+        assertEquals(3, exported);
+        List<String> lines = out.toString(StandardCharsets.UTF_8).lines().toList();
+        assertEquals(3, lines.size());
+        assertEquals(row1, objectMapper.readValue(lines.get(0), ProfileExportRow.class));
+        assertEquals(row3, objectMapper.readValue(lines.get(2), ProfileExportRow.class));
+        verify(profileRepository, times(1)).findExportRowsAfter(any(UUID.class), any(Limit.class));
+    }
+
+    @Test
+    void testExport_FullLastChunk_StopsOnEmptyChunk() throws IOException {
+        // Arrange
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        when(profileRepository.findExportRows(Limit.of(2))).thenReturn(List.of(row1, row2));
+        when(profileRepository.findExportRowsAfter(row2.id(), Limit.of(2))).thenReturn(List.of());
+
+        // Act
+        long exported = profileExporter.export(out);
+
+        // Assert
+        assertEquals(2, exported);
+        assertEquals(2, out.toString(StandardCharsets.UTF_8).lines().count());
+    }
+
+    @Test
+    void testExport_NoProfiles() throws IOException {
+        // Arrange
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        when(profileRepository.findExportRows(Limit.of(2))).thenReturn(List.of());
+
+        // Act
+        long exported = profileExporter.export(out);
+
+        // Assert
+        assertEquals(0, exported);
+        assertEquals(0, out.size());
+        verify(profileRepository, never()).findExportRowsAfter(any(UUID.class), any(Limit.class));
+    }
+
+}
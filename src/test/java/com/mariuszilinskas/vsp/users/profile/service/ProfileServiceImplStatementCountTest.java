@@ -0,0 +1,177 @@
+package com.mariuszilinskas.vsp.users.profile.service;
+
+import com.mariuszilinskas.vsp.users.profile.dto.CreateUserProfileRequest;
+import com.mariuszilinskas.vsp.users.profile.dto.ProfileResponse;
+import com.mariuszilinskas.vsp.users.profile.exception.EntityExistsException;
+import com.mariuszilinskas.vsp.users.profile.exception.ResourceNotFoundException;
+import com.mariuszilinskas.vsp.users.profile.model.Avatar;
+import com.mariuszilinskas.vsp.users.profile.model.Profile;
+import com.mariuszilinskas.vsp.users.profile.repository.AvatarRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Hibernate;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+/**
+ * Pins the number of SQL statements issued by the profile write paths against a real database.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Import(ProfileServiceImpl.class)
+public class ProfileServiceImplStatementCountTest {
+
+    @Autowired
+    private ProfileServiceImpl profileService;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private AvatarRepository avatarRepository;
+
+    @MockitoBean
+    private AvatarService avatarService;
+
+    @MockitoBean
+    private ProfileCache profileCache;
+
+    @MockitoBean
+    private CacheInvalidationService cacheInvalidationService;
+
+    private Statistics statistics;
+    private Avatar avatar;
+    private Profile profile;
+
+    private final UUID userId = UUID.randomUUID();
+    private final String avatarUrl = "http://example.com/avatar.png";
+
+    // ------------------------------------
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        avatar = new Avatar();
+        avatar.setAvatarName("Default");
+        avatar.setObjectKey("avatar.png");
+        entityManager.persist(avatar);
+
+        profile = new Profile();
+        profile.setUserId(userId);
+        profile.setProfileName("Profile 1");
+        profile.setAvatar(avatar);
+        entityManager.persist(profile);
+
+        Profile otherProfile = new Profile();
+        otherProfile.setUserId(userId);
+        otherProfile.setProfileName("Profile 2");
+        otherProfile.setAvatar(avatar);
+        entityManager.persist(otherProfile);
+
+        entityManager.flush();
+        entityManager.clear();
+        statistics.clear();
+    }
+
+    private Avatar avatarReference() {
+        return entityManager.getEntityManager().getReference(Avatar.class, avatar.getId());
+    }
+
+    // ------------------------------------
+
+    @Test
+    void testUpdateUserProfile_CachedAvatarUrl_SingleStatement() {
+        // Arrange
+        when(avatarService.getAvatarReference(avatar.getId())).thenReturn(avatarReference());
+        when(avatarService.getAvatarUrl(avatar.getId())).thenReturn(avatarUrl);
+        var request = new CreateUserProfileRequest("Renamed", avatar.getId(), true);
+
+        // Act
+        ProfileResponse response = profileService.updateUserProfile(userId, profile.getId(), request);
+
+        // Assert
+        assertEquals("Renamed", response.profileName());
+        assertEquals(avatarUrl, response.avatarUrl());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void testUpdateUserProfile_AvatarReference_TwoStatements() {
+        // Arrange
+        Avatar reference = entityManager.getEntityManager().getReference(Avatar.class, avatar.getId());
+        when(avatarService.getAvatarReference(avatar.getId())).thenReturn(reference);
+        // Uncached avatars have their object key read by a single column query
+        when(avatarService.getAvatarUrl(avatar.getId())).thenAnswer(invocation -> avatarRepository
+                .findObjectKeyById(avatar.getId()).map(objectKey -> "http://example.com/" + objectKey).orElse(null));
+        var request = new CreateUserProfileRequest("Renamed", avatar.getId(), true);
+
+        // Act
+        ProfileResponse response = profileService.updateUserProfile(userId, profile.getId(), request);
+
+        // Assert
+        assertEquals(avatarUrl, response.avatarUrl());
+        assertFalse(Hibernate.isInitialized(reference));
+        assertEquals(2, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void testUpdateUserProfile_NameExists() {
+        // Arrange
+        when(avatarService.getAvatarReference(avatar.getId())).thenReturn(avatarReference());
+        var request = new CreateUserProfileRequest("Profile 2", avatar.getId(), false);
+
+        // Act & Assert
+        assertThrows(EntityExistsException.class, () -> profileService.updateUserProfile(userId, profile.getId(), request));
+    }
+
+    @Test
+    void testUpdateUserProfile_NonExistentAvatar() {
+        // Arrange
+        UUID avatarId = UUID.randomUUID();
+        Avatar reference = entityManager.getEntityManager().getReference(Avatar.class, avatarId);
+        when(avatarService.getAvatarReference(avatarId)).thenReturn(reference);
+        var request = new CreateUserProfileRequest("Renamed", avatarId, false);
+
+        // Act & Assert
+        assertThrows(ResourceNotFoundException.class, () -> profileService.updateUserProfile(userId, profile.getId(), request));
+    }
+
+    @Test
+    void testCreateUserProfile_CachedAvatarUrl_SingleStatement() {
+        // Arrange
+        when(avatarService.getAvatarReference(avatar.getId())).thenReturn(avatarReference());
+        var request = new CreateUserProfileRequest("Profile 3", avatar.getId(), false);
+
+        // Act
+        ProfileResponse response = profileService.createUserProfile(userId, request);
+
+        // Assert
+        assertNotNull(response.id());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void testCreateUserProfile_NameExists() {
+        // Arrange
+        when(avatarService.getAvatarReference(avatar.getId())).thenReturn(avatarReference());
+        var request = new CreateUserProfileRequest("Profile 1", avatar.getId(), false);
+
+        // Act & Assert
+        assertThrows(EntityExistsException.class, () -> profileService.createUserProfile(userId, request));
+    }
+
+}
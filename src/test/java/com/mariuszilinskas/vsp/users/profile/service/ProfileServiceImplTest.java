@@ -1,22 +1,32 @@
 package com.mariuszilinskas.vsp.users.profile.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.mariuszilinskas.vsp.users.profile.dto.CreateUserDefaultProfileRequest;
 import com.mariuszilinskas.vsp.users.profile.dto.CreateUserProfileRequest;
+import com.mariuszilinskas.vsp.users.profile.dto.EncodedProfiles;
+import com.mariuszilinskas.vsp.users.profile.dto.ProfileResponse;
+import com.mariuszilinskas.vsp.users.profile.dto.UserProfileRow;
 import com.mariuszilinskas.vsp.users.profile.exception.EntityExistsException;
 import com.mariuszilinskas.vsp.users.profile.exception.ResourceNotFoundException;
 import com.mariuszilinskas.vsp.users.profile.model.Avatar;
 import com.mariuszilinskas.vsp.users.profile.model.Profile;
 import com.mariuszilinskas.vsp.users.profile.repository.ProfileRepository;
+import com.mariuszilinskas.vsp.users.profile.util.ETagUtils;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.time.Duration;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -31,7 +41,9 @@ public class ProfileServiceImplTest {
     @Mock
     private AvatarService avatarService;
 
-    @InjectMocks
+    @Mock
+    private CacheInvalidationService cacheInvalidationService;
+
     private ProfileServiceImpl profileService;
 
     private final UUID userId = UUID.randomUUID();
@@ -40,6 +52,13 @@ public class ProfileServiceImplTest {
     private final Avatar avatar = new Avatar();
     private final Profile profile = new Profile();
     private final Profile profile2 = new Profile();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ObjectUrlStrategy objectUrlStrategy = new S3ObjectUrlStrategy("bucket-name", "region-name");
+    private final String avatarObjectKey = "avatar.png";
+    private UserProfileRow profileRow;
+    private UserProfileRow profileRow2;
+    private ProfileResponse profileResponse;
+    private ProfileResponse profileResponse2;
     private CreateUserProfileRequest createRequest;
     private CreateUserDefaultProfileRequest createDefaultRequest;
 
@@ -47,6 +66,11 @@ public class ProfileServiceImplTest {
 
     @BeforeEach
     void setUp() {
+        ProfileCache profileCache = new ProfileCache(
+                profileRepository, objectMapper, objectUrlStrategy, new SimpleMeterRegistry(), 100, Duration.ofMinutes(1));
+        profileService = new ProfileServiceImpl(profileRepository, avatarService, profileCache,
+                cacheInvalidationService);
+
         avatar.setId(avatarId);
 
         profile.setId(profileId);
@@ -61,6 +85,12 @@ public class ProfileServiceImplTest {
         profile2.setAvatar(avatar);
         profile2.setKid(true);
 
+        profileRow = new UserProfileRow(userId, profile.getId(), profile.getProfileName(), false, avatarId, avatarObjectKey);
+        profileRow2 = new UserProfileRow(userId, profile2.getId(), profile2.getProfileName(), true, avatarId, avatarObjectKey);
+        String avatarUrl = objectUrlStrategy.getUrl(avatarObjectKey);
+        profileResponse = new ProfileResponse(profile.getId(), profile.getProfileName(), false, avatarId, avatarUrl);
+        profileResponse2 = new ProfileResponse(profile2.getId(), profile2.getProfileName(), true, avatarId, avatarUrl);
+
         createDefaultRequest = new CreateUserDefaultProfileRequest(userId, "Name");
 
         createRequest = new CreateUserProfileRequest(
@@ -121,26 +151,81 @@ public class ProfileServiceImplTest {
 
     // ------------------------------------
 
+    @Test
+    void testCreateDefaultUserProfiles_Success() {
+        // Arrange
+        UUID userId2 = UUID.randomUUID();
+        CreateUserDefaultProfileRequest createDefaultRequest2 = new CreateUserDefaultProfileRequest(userId2, "Name 2");
+        ArgumentCaptor<List<Profile>> captor = ArgumentCaptor.forClass(List.class);
+
+        when(avatarService.getRandomAvatar()).thenReturn(avatar);
+        doNothing().when(profileRepository).insertAll(captor.capture());
+
+        // Act
+        List<CreateUserDefaultProfileRequest> failedRequests =
+                profileService.createDefaultUserProfiles(List.of(createDefaultRequest, createDefaultRequest2));
+
+        // Assert
+        assertTrue(failedRequests.isEmpty());
+
+        verify(profileRepository, times(1)).insertAll(anyList());
+        verify(profileRepository, never()).save(any(Profile.class));
+
+        List<Profile> savedProfiles = captor.getValue();
+        assertEquals(2, savedProfiles.size());
+        assertNotNull(savedProfiles.get(0).getId());
+        assertEquals(createDefaultRequest.firstName(), savedProfiles.get(0).getProfileName());
+        assertEquals(userId2, savedProfiles.get(1).getUserId());
+        assertEquals(avatarId, savedProfiles.get(1).getAvatar().getId());
+    }
+
+    @Test
+    void testCreateDefaultUserProfiles_FailedProfileIsIsolated() {
+        // Arrange
+        UUID userId2 = UUID.randomUUID();
+        CreateUserDefaultProfileRequest createDefaultRequest2 = new CreateUserDefaultProfileRequest(userId2, "Name 2");
+
+        when(avatarService.getRandomAvatar()).thenReturn(avatar);
+        doThrow(new DataIntegrityViolationException("Batch failed"))
+                .doNothing()
+                .doThrow(new DataIntegrityViolationException("Profile failed"))
+                .when(profileRepository).insertAll(anyList());
+
+        // Act
+        List<CreateUserDefaultProfileRequest> failedRequests =
+                profileService.createDefaultUserProfiles(List.of(createDefaultRequest, createDefaultRequest2));
+
+        // Assert
+        assertEquals(List.of(createDefaultRequest2), failedRequests);
+
+        verify(profileRepository, times(3)).insertAll(anyList());
+    }
+
+    // ------------------------------------
+
     @Test
     void testCreateUserProfile_Success() {
         // Arrange
         ArgumentCaptor<Profile> captor = ArgumentCaptor.forClass(Profile.class);
 
-        when(profileRepository.existsByUserIdAndProfileName(userId, createRequest.profileName())).thenReturn(false);
-        when(avatarService.getAvatar(createRequest.avatarId())).thenReturn(avatar);
-        when(profileRepository.save(captor.capture())).thenReturn(profile);
+        when(avatarService.getAvatarReference(createRequest.avatarId())).thenReturn(avatar);
+        when(profileRepository.saveAndFlush(captor.capture())).thenReturn(profile);
+        when(avatarService.getAvatarUrl(avatarId)).thenReturn("http://example.com/avatar.png");
 
         // Act
-        Profile response = profileService.createUserProfile(userId, createRequest);
+        ProfileResponse response = profileService.createUserProfile(userId, createRequest);
 
         // Assert
         assertNotNull(response);
+        assertEquals(createRequest.profileName(), response.profileName());
+        assertEquals(avatarId, response.avatarId());
+        assertEquals("http://example.com/avatar.png", response.avatarUrl());
 
-        verify(profileRepository, times(1)).existsByUserIdAndProfileName(userId, createRequest.profileName());
-        verify(avatarService, times(1)).getAvatar(avatarId);
-        verify(profileRepository, times(1)).save(captor.capture());
+        verify(avatarService, times(1)).getAvatarReference(avatarId);
+        verify(profileRepository, times(1)).saveAndFlush(any(Profile.class));
 
         Profile savedProfile = captor.getValue();
+        assertEquals(userId, savedProfile.getUserId());
         assertEquals(createRequest.profileName(), savedProfile.getProfileName());
         assertEquals(createRequest.avatarId(), savedProfile.getAvatar().getId());
         assertEquals(createRequest.isKid(), savedProfile.isKid());
@@ -149,14 +234,114 @@ public class ProfileServiceImplTest {
     @Test
     void testCreateUserProfile_NameExists() {
         // Arrange
-        when(profileRepository.existsByUserIdAndProfileName(userId, createRequest.profileName())).thenReturn(true);
+        when(avatarService.getAvatarReference(createRequest.avatarId())).thenReturn(avatar);
+        when(profileRepository.saveAndFlush(any(Profile.class))).thenThrow(nameViolation());
 
         // Act & Assert
         assertThrows(EntityExistsException.class, () -> profileService.createUserProfile(userId, createRequest));
 
-        verify(profileRepository, times(1)).existsByUserIdAndProfileName(any(UUID.class), anyString());
-        verify(avatarService, never()).getAvatar(any(UUID.class));
+        verify(profileRepository, times(1)).saveAndFlush(any(Profile.class));
+        verify(cacheInvalidationService, never()).profilesChanged(any(UUID.class));
+    }
+
+    @Test
+    void testCreateUserProfile_NonExistentAvatar() {
+        // Arrange
+        when(avatarService.getAvatarReference(createRequest.avatarId())).thenReturn(avatar);
+        when(profileRepository.saveAndFlush(any(Profile.class)))
+                .thenThrow(new DataIntegrityViolationException(
+                        "Referential integrity constraint violation: \"FK_PROFILES_AVATAR: PUBLIC.PROFILES\""));
+
+        // Act & Assert
+        assertThrows(ResourceNotFoundException.class, () -> profileService.createUserProfile(userId, createRequest));
+
+    }
+
+    @Test
+    void testCreateUserProfile_OtherViolation_Rethrown() {
+        // Arrange
+        DataIntegrityViolationException violation =
+                new DataIntegrityViolationException("NULL not allowed for column \"USER_ID\"");
+        when(avatarService.getAvatarReference(createRequest.avatarId())).thenReturn(avatar);
+        when(profileRepository.saveAndFlush(any(Profile.class))).thenThrow(violation);
+
+        // Act & Assert
+        DataIntegrityViolationException thrown = assertThrows(DataIntegrityViolationException.class,
+                () -> profileService.createUserProfile(userId, createRequest));
+
+        assertSame(violation, thrown);
+    }
+
+    // ------------------------------------
+
+    @Test
+    void testUpdateUserProfile_Success() {
+        // Arrange
+        when(avatarService.getAvatarReference(createRequest.avatarId())).thenReturn(avatar);
+        when(profileRepository.updateProfile(profileId, userId, createRequest.profileName(), avatar, createRequest.isKid()))
+                .thenReturn(1);
+
+        // Act
+        ProfileResponse response = profileService.updateUserProfile(userId, profileId, createRequest);
+
+        // Assert
+        assertEquals(profileId, response.id());
+        assertEquals(createRequest.profileName(), response.profileName());
+        assertEquals(avatarId, response.avatarId());
+
         verify(profileRepository, never()).save(any(Profile.class));
+        verify(cacheInvalidationService, times(1)).profilesChanged(userId);
+    }
+
+    @Test
+    void testUpdateUserProfile_InvalidatesOnlyAfterCommit() {
+        // Arrange
+        when(avatarService.getAvatarReference(createRequest.avatarId())).thenReturn(avatar);
+        when(profileRepository.updateProfile(profileId, userId, createRequest.profileName(), avatar, createRequest.isKid()))
+                .thenReturn(1);
+        TransactionSynchronizationManager.initSynchronization();
+
+        try {
+            // Act
+            profileService.updateUserProfile(userId, profileId, createRequest);
+
+            // Assert
+            verify(cacheInvalidationService, never()).profilesChanged(any(UUID.class));
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+            verify(cacheInvalidationService, times(1)).profilesChanged(userId);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void testUpdateUserProfile_NonExistentUserProfile() {
+        // Arrange
+        when(avatarService.getAvatarReference(createRequest.avatarId())).thenReturn(avatar);
+        when(profileRepository.updateProfile(profileId, userId, createRequest.profileName(), avatar, createRequest.isKid()))
+                .thenReturn(0);
+
+        // Act & Assert
+        assertThrows(ResourceNotFoundException.class, () -> profileService.updateUserProfile(userId, profileId, createRequest));
+
+    }
+
+    @Test
+    void testUpdateUserProfile_NameExists() {
+        // Arrange
+        when(avatarService.getAvatarReference(createRequest.avatarId())).thenReturn(avatar);
+        when(profileRepository.updateProfile(profileId, userId, createRequest.profileName(), avatar, createRequest.isKid()))
+                .thenThrow(nameViolation());
+
+        // Act & Assert
+        assertThrows(EntityExistsException.class, () -> profileService.updateUserProfile(userId, profileId, createRequest));
+
+    }
+
+    private DataIntegrityViolationException nameViolation() {
+        return new DataIntegrityViolationException(
+                "duplicate key value violates unique constraint \"" + Profile.UNIQUE_NAME_CONSTRAINT + "\"");
     }
 
     // ------------------------------------
@@ -164,21 +349,217 @@ public class ProfileServiceImplTest {
     @Test
     void testGetAllUserProfiles_Success() {
         // Arrange
-        List<Profile> avatars = List.of(profile, profile2);
-        when(profileRepository.findAllByUserId(userId)).thenReturn(avatars);
+        when(profileRepository.findRowsByUserId(userId)).thenReturn(List.of(profileRow, profileRow2));
 
         // Act
-        List<Profile> response = profileService.getAllUserProfiles(userId);
+        List<ProfileResponse> response = profileService.getAllUserProfiles(userId);
 
         // Assert
         assertNotNull(response);
+        assertEquals(List.of(profileResponse, profileResponse2), response);
+        assertEquals("https://bucket-name.s3.region-name.amazonaws.com/avatar.png", response.get(0).avatarUrl());
+        assertEquals(profile.getId(), response.get(0).id());
+        assertEquals(profile.getProfileName(), response.get(0).profileName());
+        assertEquals(profile2.getId(), response.get(1).id());
+        assertEquals(profile2.getProfileName(), response.get(1).profileName());
+
+        verify(profileRepository, times(1)).findRowsByUserId(userId);
+    }
+
+    // ------------------------------------
+
+    @Test
+    void testGetAllUserProfiles_ServedFromCache() {
+        // Arrange
+        when(profileRepository.findRowsByUserId(userId)).thenReturn(List.of(profileRow, profileRow2));
+
+        // Act
+        profileService.getAllUserProfiles(userId);
+        profileService.getUserProfile(userId, profileId);
+        List<ProfileResponse> response = profileService.getAllUserProfiles(userId);
+
+        // Assert
         assertEquals(2, response.size());
-        assertEquals(profile.getId(), response.get(0).getId());
-        assertEquals(profile.getProfileName(), response.get(0).getProfileName());
-        assertEquals(profile2.getId(), response.get(1).getId());
-        assertEquals(profile2.getProfileName(), response.get(1).getProfileName());
+        verify(profileRepository, times(1)).findRowsByUserId(userId);
+    }
 
-        verify(profileRepository, times(1)).findAllByUserId(userId);
+    @Test
+    void testGetEncodedUserProfiles_Success() throws Exception {
+        // Arrange
+        when(profileRepository.findRowsByUserId(userId)).thenReturn(List.of(profileRow, profileRow2));
+
+        // Act
+        EncodedProfiles response = profileService.getEncodedUserProfiles(userId);
+
+        // Assert
+        assertArrayEquals(objectMapper.writeValueAsBytes(List.of(profileResponse, profileResponse2)), response.json());
+        assertEquals(ETagUtils.digest(response.json()), response.digest());
+    }
+
+    @Test
+    void testGetEncodedUserProfiles_EncodedOncePerLoad() {
+        // Arrange
+        when(profileRepository.findRowsByUserId(userId)).thenReturn(List.of(profileRow, profileRow2));
+        when(profileRepository.deleteProfile(profileId, userId)).thenReturn(1);
+
+        // Act
+        profileService.getAllUserProfiles(userId);
+        EncodedProfiles first = profileService.getEncodedUserProfiles(userId);
+        EncodedProfiles second = profileService.getEncodedUserProfiles(userId);
+        profileService.deleteUserProfile(userId, profileId);
+        EncodedProfiles third = profileService.getEncodedUserProfiles(userId);
+
+        // Assert
+        assertSame(first, second);
+        assertNotSame(first, third);
+        verify(profileRepository, times(2)).findRowsByUserId(userId);
+    }
+
+    @Test
+    void testGetAllUserProfiles_EvictedOnWrite() {
+        // Arrange
+        when(profileRepository.findRowsByUserId(userId)).thenReturn(List.of(profileRow, profileRow2));
+        when(profileRepository.deleteProfile(profileId, userId)).thenReturn(1);
+
+        // Act
+        profileService.getAllUserProfiles(userId);
+        profileService.deleteUserProfile(userId, profileId);
+        profileService.getAllUserProfiles(userId);
+
+        // Assert
+        verify(profileRepository, times(2)).findRowsByUserId(userId);
+    }
+
+    @Test
+    void testGetAllUserProfiles_EvictedOnBatchDelete() {
+        // Arrange
+        when(profileRepository.findRowsByUserId(userId)).thenReturn(List.of(profileRow, profileRow2));
+        when(profileRepository.deleteAllByUserIdIn(Set.of(userId))).thenReturn(2);
+
+        // Act
+        profileService.getAllUserProfiles(userId);
+        profileService.deleteAllUserProfiles(Set.of(userId));
+        profileService.getAllUserProfiles(userId);
+
+        // Assert
+        verify(profileRepository, times(2)).findRowsByUserId(userId);
+    }
+
+    @Test
+    void testGetAllUserProfiles_EvictedWhileLoading_NotCached() {
+        // Arrange
+        when(profileRepository.findRowsByUserId(userId)).thenAnswer(invocation -> {
+            profileService.deleteAllUserProfiles(userId);
+            return List.of(profileRow, profileRow2);
+        });
+
+        // Act
+        profileService.getAllUserProfiles(userId);
+        profileService.getAllUserProfiles(userId);
+
+        // Assert
+        verify(profileRepository, times(2)).findRowsByUserId(userId);
+    }
+
+    @Test
+    void testGetAllUserProfiles_OtherUserEvictedWhileLoading_StillCached() {
+        // Arrange
+        UUID otherUserId = UUID.randomUUID();
+        when(profileRepository.findRowsByUserId(userId)).thenAnswer(invocation -> {
+            profileService.deleteAllUserProfiles(otherUserId);
+            return List.of(profileRow, profileRow2);
+        });
+
+        // Act
+        profileService.getAllUserProfiles(userId);
+        profileService.getAllUserProfiles(userId);
+
+        // Assert
+        verify(profileRepository, times(1)).findRowsByUserId(userId);
+    }
+
+    @Test
+    void testGetAllUserProfiles_LoadFails_NotCached() {
+        // Arrange
+        when(profileRepository.findRowsByUserId(userId))
+                .thenThrow(new RuntimeException("Database down"))
+                .thenReturn(List.of(profileRow, profileRow2));
+
+        // Act & Assert
+        assertThrows(RuntimeException.class, () -> profileService.getAllUserProfiles(userId));
+        profileService.getAllUserProfiles(userId);
+        List<ProfileResponse> response = profileService.getAllUserProfiles(userId);
+
+        // Assert
+        assertEquals(2, response.size());
+        verify(profileRepository, times(2)).findRowsByUserId(userId);
+    }
+
+    // ------------------------------------
+
+    @Test
+    void testGetAllUserProfilesBatch_Success() {
+        // Arrange
+        UUID otherUserId = UUID.randomUUID();
+        UUID userIdWithoutProfiles = UUID.randomUUID();
+        List<UserProfileRow> rows = List.of(
+                profileRow,
+                profileRow2,
+                new UserProfileRow(otherUserId, UUID.randomUUID(), "Other", false, null, null)
+        );
+        when(profileRepository.findRowsByUserIdIn(anyCollection())).thenReturn(rows);
+
+        // Act
+        Map<UUID, List<ProfileResponse>> response =
+                profileService.getAllUserProfiles(Set.of(userId, otherUserId, userIdWithoutProfiles));
+
+        // Assert
+        assertEquals(3, response.size());
+        assertEquals(List.of(profileResponse, profileResponse2), response.get(userId));
+        assertEquals(1, response.get(otherUserId).size());
+        assertNull(response.get(otherUserId).get(0).avatarUrl());
+        assertTrue(response.get(userIdWithoutProfiles).isEmpty());
+
+        verify(profileRepository, times(1)).findRowsByUserIdIn(anyCollection());
+    }
+
+    @Test
+    void testGetAllUserProfilesBatch_LoadsOnlyCacheMisses() {
+        // Arrange
+        UUID otherUserId = UUID.randomUUID();
+        when(profileRepository.findRowsByUserId(userId)).thenReturn(List.of(profileRow, profileRow2));
+        when(profileRepository.findRowsByUserIdIn(Set.of(otherUserId))).thenReturn(List.of());
+
+        // Act
+        profileService.getAllUserProfiles(userId);
+        Map<UUID, List<ProfileResponse>> response = profileService.getAllUserProfiles(Set.of(userId, otherUserId));
+        profileService.getAllUserProfiles(Set.of(userId, otherUserId));
+
+        // Assert
+        assertEquals(2, response.get(userId).size());
+        assertTrue(response.get(otherUserId).isEmpty());
+        verify(profileRepository, times(1)).findRowsByUserId(userId);
+        verify(profileRepository, times(1)).findRowsByUserIdIn(Set.of(otherUserId));
+    }
+
+    @Test
+    void testGetAllUserProfilesBatch_EvictedWhileLoading_OnlyThatUserNotCached() {
+        // Arrange
+        UUID otherUserId = UUID.randomUUID();
+        Set<UUID> userIds = Set.of(userId, otherUserId);
+        when(profileRepository.findRowsByUserIdIn(userIds)).thenAnswer(invocation -> {
+            profileService.deleteAllUserProfiles(otherUserId);
+            return List.of(profileRow, profileRow2);
+        });
+        when(profileRepository.findRowsByUserIdIn(Set.of(otherUserId))).thenReturn(List.of());
+
+        // Act
+        profileService.getAllUserProfiles(userIds);
+        profileService.getAllUserProfiles(userIds);
+
+        // Assert
+        verify(profileRepository, times(1)).findRowsByUserIdIn(userIds);
+        verify(profileRepository, times(1)).findRowsByUserIdIn(Set.of(otherUserId));
     }
 
     // ------------------------------------
@@ -186,30 +567,30 @@ public class ProfileServiceImplTest {
     @Test
     void testGetUserProfile_Success() {
         // Arrange
-        when(profileRepository.findByIdAndUserId(avatarId, userId)).thenReturn(Optional.of(profile));
+        when(profileRepository.findRowsByUserId(userId)).thenReturn(List.of(profileRow, profileRow2));
 
         // Act
-        Profile response = profileService.getUserProfile(userId, avatarId);
+        ProfileResponse response = profileService.getUserProfile(userId, profileId);
 
         // Assert
         assertNotNull(response);
-        assertEquals(profile.getId(), response.getId());
-        assertEquals(profile.getProfileName(), response.getProfileName());
+        assertEquals(profile.getId(), response.id());
+        assertEquals(profile.getProfileName(), response.profileName());
 
-        verify(profileRepository, times(1)).findByIdAndUserId(avatarId, userId);
+        verify(profileRepository, times(1)).findRowsByUserId(userId);
     }
 
     @Test
     void testGetUserProfile_NonExistentUserProfile() {
         // Arrange
         UUID nonExistentProfileId = UUID.randomUUID();
-        when(profileRepository.findByIdAndUserId(nonExistentProfileId, userId)).thenReturn(Optional.empty());
+        when(profileRepository.findRowsByUserId(userId)).thenReturn(List.of(profileRow, profileRow2));
 
         // Act & Assert
         assertThrows(ResourceNotFoundException.class, () -> profileService.getUserProfile(userId, nonExistentProfileId));
 
         // Assert
-        verify(profileRepository, times(1)).findByIdAndUserId(nonExistentProfileId, userId);
+        verify(profileRepository, times(1)).findRowsByUserId(userId);
     }
 
     // ------------------------------------
@@ -217,32 +598,28 @@ public class ProfileServiceImplTest {
     @Test
     void testDeleteUserProfile_Success() {
         // Arrange
-        when(profileRepository.findByIdAndUserId(profileId, userId)).thenReturn(Optional.of(profile));
-        doNothing().when(profileRepository).delete(profile);
+        when(profileRepository.deleteProfile(profileId, userId)).thenReturn(1);
 
         // Act
         profileService.deleteUserProfile(userId, profileId);
 
         // Assert
-        verify(profileRepository, times(1)).findByIdAndUserId(profileId, userId);
-        verify(profileRepository, times(1)).delete(profile);
-
-        when(profileRepository.findByIdAndUserId(profileId, userId)).thenReturn(Optional.empty());
-        assertFalse(profileRepository.findByIdAndUserId(profileId, userId).isPresent());
+        verify(profileRepository, times(1)).deleteProfile(profileId, userId);
+        verify(profileRepository, never()).findById(any(UUID.class));
+        verify(cacheInvalidationService, times(1)).profilesChanged(userId);
     }
 
     @Test
     void testDeleteUserProfile_NonExistingProfile() {
         // Arrange
-        UUID nonExistentAvatarId = UUID.randomUUID();
-        when(profileRepository.findByIdAndUserId(nonExistentAvatarId, userId)).thenReturn(Optional.empty());
+        UUID nonExistentProfileId = UUID.randomUUID();
+        when(profileRepository.deleteProfile(nonExistentProfileId, userId)).thenReturn(0);
 
         // Act & Assert
-        assertThrows(ResourceNotFoundException.class, () -> profileService.deleteUserProfile(userId, nonExistentAvatarId));
+        assertThrows(ResourceNotFoundException.class, () -> profileService.deleteUserProfile(userId, nonExistentProfileId));
 
         // Assert
-        verify(profileRepository, times(1)).findByIdAndUserId(nonExistentAvatarId, userId);
-        verify(profileRepository, never()).delete(any(Profile.class));
+        verify(profileRepository, times(1)).deleteProfile(nonExistentProfileId, userId);
     }
 
     // ------------------------------------
@@ -250,7 +627,7 @@ public class ProfileServiceImplTest {
     @Test
     void testDeleteAllUserProfiles_Success() {
         // Arrange
-        doNothing().when(profileRepository).deleteAllByUserId(userId);
+        when(profileRepository.deleteAllByUserId(userId)).thenReturn(2);
 
         // Act
         profileService.deleteAllUserProfiles(userId);
@@ -259,4 +636,20 @@ public class ProfileServiceImplTest {
         verify(profileRepository, times(1)).deleteAllByUserId(userId);
     }
 
+    @Test
+    void testDeleteAllUserProfiles_Batch_Success() {
+        // Arrange
+        UUID userId2 = UUID.randomUUID();
+        Set<UUID> userIds = Set.of(userId, userId2);
+        when(profileRepository.deleteAllByUserIdIn(userIds)).thenReturn(3);
+
+        // Act
+        int deletedProfiles = profileService.deleteAllUserProfiles(userIds);
+
+        // Assert
+        assertEquals(3, deletedProfiles);
+        verify(profileRepository, times(1)).deleteAllByUserIdIn(userIds);
+        verify(profileRepository, never()).deleteAllByUserId(any(UUID.class));
+    }
+
 }
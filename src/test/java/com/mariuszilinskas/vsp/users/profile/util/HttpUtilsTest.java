@@ -0,0 +1,34 @@
+package com.mariuszilinskas.vsp.users.profile.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HttpUtilsTest {
+
+    @Test
+    void testAcceptsGzip_Listed() {
+        assertTrue(HttpUtils.acceptsGzip("gzip, deflate, br"));
+        assertTrue(HttpUtils.acceptsGzip("br;q=1.0, GZIP;q=0.8"));
+    }
+
+    @Test
+    void testAcceptsGzip_Wildcard() {
+        assertTrue(HttpUtils.acceptsGzip("*"));
+        assertFalse(HttpUtils.acceptsGzip("*;q=0"));
+    }
+
+    @Test
+    void testAcceptsGzip_ZeroQuality() {
+        assertFalse(HttpUtils.acceptsGzip("gzip;q=0"));
+        assertFalse(HttpUtils.acceptsGzip("gzip;q=0.000, *"));
+    }
+
+    @Test
+    void testAcceptsGzip_NotListed() {
+        assertFalse(HttpUtils.acceptsGzip(null));
+        assertFalse(HttpUtils.acceptsGzip("identity"));
+        assertFalse(HttpUtils.acceptsGzip("br, deflate"));
+    }
+
+}